@@ -0,0 +1,72 @@
+package cf.vaadin.herb.services;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.unit.DataSize;
+
+import cf.vaadin.herb.services.journal.CommandJournal;
+
+/**
+ * Latency of a search over a journal of a million commands, for a frequent, a
+ * rare and a short query, and for the worst cases of the trigram index:
+ * queries made of frequent trigrams whose combination is rare or never occurs,
+ * so long posting lists are intersected for few or no matches.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class CommandSearchBenchmark {
+
+    private static final int COMMANDS = 1_000_000;
+    private static final String[] VERBS = { "deploy", "restart", "status", "logs", "scale", "rollback" };
+
+    @Param({ "restart", "service-4711 ", "ro", "status service-99 --env 2", "e service-9999 --env 1",
+            "deploy service-1 --env", "logs service-7 --env 0" })
+    private String query;
+
+    private Path directory;
+    private CommandSearchIndex index;
+
+    @Setup
+    public void fill() throws IOException {
+        directory = Files.createTempDirectory("command-search");
+        CommandJournal journal = new CommandJournal(directory.toString(), DataSize.ofMegabytes(64));
+        index = new CommandSearchIndex(journal);
+        for (int i = 0; i < COMMANDS; i++) {
+            index.add(journal.append(VERBS[i % VERBS.length] + " service-" + (i % 10_000) + " --env " + (i % 3),
+                    1 + i));
+        }
+    }
+
+    @TearDown
+    public void delete() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public CommandSearchResult search() {
+        return index.search(query, 20);
+    }
+}
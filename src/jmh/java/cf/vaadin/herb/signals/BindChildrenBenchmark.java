@@ -0,0 +1,76 @@
+package cf.vaadin.herb.signals;
+
+import java.util.concurrent.TimeUnit;
+
+import com.vaadin.flow.component.html.ListItem;
+import com.vaadin.flow.component.html.UnorderedList;
+import com.vaadin.signals.ListSignal;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of keeping a list component in sync with a list signal when a command is
+ * inserted at the top, comparing the keyed update of
+ * {@link ComponentSignals#bindChildren} with clearing and re-adding all items.
+ * The effect is run directly to leave out the scheduling of the signal
+ * framework.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, batchSize = BindChildrenBenchmark.BATCH)
+@Measurement(iterations = 10, batchSize = BindChildrenBenchmark.BATCH)
+@Fork(1)
+public class BindChildrenBenchmark {
+
+    static final int BATCH = 100;
+
+    @Param({ "100", "1000", "10000" })
+    private int size;
+
+    private ListSignal<String> list;
+    private UnorderedList keyedList;
+    private ChildBinding<String> binding;
+    private UnorderedList rebuiltList;
+
+    @Setup(Level.Iteration)
+    public void fill() {
+        list = new ListSignal<>(String.class);
+        for (int i = 0; i < size; i++) {
+            list.insertLast("command " + i);
+        }
+        keyedList = new UnorderedList();
+        binding = new ChildBinding<>(keyedList, entry -> new ListItem(entry.peek()));
+        binding.update(list.peek());
+        rebuiltList = new UnorderedList();
+        rebuild();
+    }
+
+    @Benchmark
+    public void keyed() {
+        list.insertFirst("command");
+        binding.update(list.peek());
+    }
+
+    @Benchmark
+    public void removeAllAndAdd() {
+        list.insertFirst("command");
+        rebuild();
+    }
+
+    private void rebuild() {
+        rebuiltList.removeAll();
+        list.peek().forEach(entry -> rebuiltList.add(new ListItem(entry.peek())));
+    }
+}
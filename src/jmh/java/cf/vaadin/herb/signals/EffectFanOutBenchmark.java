@@ -0,0 +1,62 @@
+package cf.vaadin.herb.signals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.vaadin.signals.Signal;
+import com.vaadin.signals.ValueSignal;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Cost of a write that has to run a number of dependent effects.
+ * <p>
+ * {@code ComponentEffect} needs attached components in a session, so this uses
+ * the plain {@link Signal#effect(Runnable)} that it is built on.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EffectFanOutBenchmark {
+
+    @Param({ "1", "100", "10000" })
+    private int subscribers;
+
+    private final ValueSignal<Integer> signal = new ValueSignal<>(0);
+    private final List<Runnable> cleanups = new ArrayList<>();
+    private int counter;
+
+    @Setup
+    public void subscribe(Blackhole blackhole) {
+        for (int i = 0; i < subscribers; i++) {
+            cleanups.add(Signal.effect(() -> blackhole.consume(signal.value())));
+        }
+    }
+
+    @TearDown
+    public void unsubscribe() {
+        cleanups.forEach(Runnable::run);
+        cleanups.clear();
+    }
+
+    @Benchmark
+    public void write() {
+        signal.value(counter++);
+    }
+}
@@ -0,0 +1,62 @@
+package cf.vaadin.herb.signals;
+
+import java.util.concurrent.TimeUnit;
+
+import com.vaadin.signals.ListSignal;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of inserting into a list signal depending on its size. Every iteration
+ * starts from a list of {@code size} entries and measures a batch of inserts,
+ * so the list does not keep growing over the run.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, batchSize = ListSignalBenchmark.BATCH)
+@Measurement(iterations = 10, batchSize = ListSignalBenchmark.BATCH)
+@Fork(1)
+public class ListSignalBenchmark {
+
+    static final int BATCH = 1000;
+
+    @Param({ "0", "1000", "10000" })
+    private int size;
+
+    private ListSignal<String> list;
+
+    @Setup(Level.Iteration)
+    public void fill() {
+        list = new ListSignal<>(String.class);
+        for (int i = 0; i < size; i++) {
+            list.insertLast("command " + i);
+        }
+    }
+
+    @Benchmark
+    public void insertFirst() {
+        list.insertFirst("command");
+    }
+
+    @Benchmark
+    public void insertLast() {
+        list.insertLast("command");
+    }
+
+    @Benchmark
+    public int readAll() {
+        return list.value().size();
+    }
+}
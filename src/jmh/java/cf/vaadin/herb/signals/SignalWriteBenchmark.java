@@ -0,0 +1,70 @@
+package cf.vaadin.herb.signals;
+
+import java.util.concurrent.TimeUnit;
+
+import com.vaadin.signals.NumberSignal;
+import com.vaadin.signals.ValueSignal;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Write throughput of single value signals. Run with {@code -prof gc} to see
+ * the allocation per write.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SignalWriteBenchmark {
+
+    private final ValueSignal<String> valueSignal = new ValueSignal<>("");
+    private final NumberSignal numberSignal = new NumberSignal();
+    private final NumberWindowSignal windowSignal = new NumberWindowSignal(12);
+    private final DoubleSignal doubleSignal = new DoubleSignal(0);
+    private int counter;
+
+    @Benchmark
+    public void valueSignalWrite() {
+        valueSignal.value(counter++ % 2 == 0 ? "even" : "odd");
+    }
+
+    @Benchmark
+    public void numberSignalWrite() {
+        numberSignal.value((double) counter++);
+    }
+
+    @Benchmark
+    public void numberSignalIncrement() {
+        numberSignal.incrementBy(1);
+    }
+
+    @Benchmark
+    public void doubleSignalWrite() {
+        doubleSignal.value(counter++);
+    }
+
+    @Benchmark
+    public void doubleSignalWriteUnchanged() {
+        doubleSignal.value(42);
+    }
+
+    @Benchmark
+    public void numberWindowAppend() {
+        windowSignal.append(counter++);
+    }
+
+    @Benchmark
+    public String valueSignalRead() {
+        return valueSignal.peek();
+    }
+}
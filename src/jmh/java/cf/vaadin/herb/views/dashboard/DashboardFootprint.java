@@ -0,0 +1,123 @@
+package cf.vaadin.herb.views.dashboard;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import cf.vaadin.herb.services.metrics.MetricsStore;
+import cf.vaadin.herb.views.dashboard.ServiceHealth.Status;
+
+import com.vaadin.flow.component.Component;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.server.Command;
+import com.vaadin.flow.server.VaadinSession;
+
+/**
+ * Measures the heap retained per open dashboard.
+ * <p>
+ * Every view is attached to a UI of its own, so its effects are active and
+ * subscribed to the shared {@link DashboardModel} as in a browser tab. The
+ * baseline is the same UI without a view, the difference is what a dashboard
+ * costs on top of the session it is opened in. Run with
+ * {@code ./mvnw -Pbenchmark test-compile exec:exec -Dbenchmark.main=cf.vaadin.herb.views.dashboard.DashboardFootprint}
+ * and optionally the view counts in {@code -Djmh.args="1 100 1000"}.
+ */
+public class DashboardFootprint {
+
+    public static void main(String[] args) throws Exception {
+        int[] counts = args.length > 0 ? Arrays.stream(args).mapToInt(Integer::parseInt).toArray()
+                : new int[] { 1, 100, 1000 };
+        MetricsStore metricsStore = new MetricsStore(Files.createTempDirectory("dashboard-footprint").toString());
+        DashboardModel model = newModel();
+
+        for (int count : counts) {
+            long baseline = report("empty UI", count, () -> attach(null));
+            long dashboard = report("dashboard", count, () -> attach(new DashboardView(model, metricsStore)));
+            System.out.printf("%-15s %5d views: %,10d per view%n", "dashboard only", count, dashboard - baseline);
+        }
+    }
+
+    private static DashboardModel newModel() {
+        Random random = new Random();
+        DashboardModel model = new DashboardModel();
+        model.initServiceHealth(List.of(
+                new ServiceHealth(Status.OK, "Münster", random.nextInt(360), random.nextInt(1700)),
+                new ServiceHealth(Status.OK, "Cluj-Napoca", random.nextInt(340), random.nextInt(1600)),
+                new ServiceHealth(Status.OK, "Ciudad Victoria", random.nextInt(320), random.nextInt(1500))));
+        return model;
+    }
+
+    // A UI in a session of its own, with the view attached to it if there is one
+    private static UI attach(Component view) {
+        UI ui = new UI();
+        ui.getInternals().setSession(new FootprintSession());
+        if (view != null) {
+            ui.add(view);
+        }
+        return ui;
+    }
+
+    /**
+     * Returns the heap retained per view.
+     */
+    private static long report(String label, int count, Supplier<Object> factory) throws InterruptedException {
+        long before = usedHeap();
+        List<Object> views = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            views.add(factory.get());
+        }
+        long after = usedHeap();
+        System.out.printf("%-15s %5d views: %,10d per view, %,12d bytes retained%n", label, count,
+                (after - before) / count, after - before);
+        Reference.reachabilityFence(views);
+        return (after - before) / count;
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * A session without a service that is always locked by the calling thread
+     * and runs {@link UI#access} tasks right away, as the frames of the
+     * throttle would run once pushed.
+     */
+    private static final class FootprintSession extends VaadinSession {
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private FootprintSession() {
+            super(null);
+            lock.lock();
+        }
+
+        @Override
+        public Lock getLockInstance() {
+            return lock;
+        }
+
+        @Override
+        public boolean hasLock() {
+            return true;
+        }
+
+        @Override
+        public Future<Void> access(Command command) {
+            command.execute();
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+}
@@ -13,6 +13,7 @@ import org.springframework.boot.context.properties.EnableConfigurationProperties
 import org.springframework.boot.jdbc.autoconfigure.ApplicationDataSourceScriptDatabaseInitializer;
 import org.springframework.boot.sql.autoconfigure.init.SqlInitializationProperties;
 import org.springframework.context.annotation.Bean;
+import org.springframework.data.jpa.domain.Specification;
 
 /**
  * The entry point of the Spring Boot application.
@@ -39,7 +40,8 @@ public class Application implements AppShellConfigurator {
         return new ApplicationDataSourceScriptDatabaseInitializer(dataSource, properties) {
             @Override
             public boolean initializeDatabase() {
-                return (repository.count() == 0L) && super.initializeDatabase();
+                // Only the existence of a row is checked, counting would scan the whole table
+                return !repository.exists(Specification.unrestricted()) && super.initializeDatabase();
             }
         };
     }
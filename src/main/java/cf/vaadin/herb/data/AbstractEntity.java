@@ -31,6 +31,15 @@ public abstract class AbstractEntity {
         return version;
     }
 
+    /**
+     * Takes over the id and version of the given entity, so a copy is saved as
+     * an update of the same row and is checked against the same version.
+     */
+    protected void copyIdentity(AbstractEntity other) {
+        this.id = other.id;
+        this.version = other.version;
+    }
+
     @Override
     public int hashCode() {
         if (getId() != null) {
@@ -1,10 +1,25 @@
 package cf.vaadin.herb.data;
 
 import jakarta.persistence.Entity;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
 import jakarta.validation.constraints.Email;
 import java.time.LocalDate;
 
+/*
+ * The grids sort by every text and date column and page by keyset, an index
+ * on the column and the id lets a page start at its position instead of
+ * scanning and sorting the table.
+ */
 @Entity
+@Table(indexes = {
+        @Index(name = "sample_person_first_name", columnList = "firstName, id"),
+        @Index(name = "sample_person_last_name", columnList = "lastName, id"),
+        @Index(name = "sample_person_email", columnList = "email, id"),
+        @Index(name = "sample_person_phone", columnList = "phone, id"),
+        @Index(name = "sample_person_date_of_birth", columnList = "dateOfBirth, id"),
+        @Index(name = "sample_person_occupation", columnList = "occupation, id"),
+        @Index(name = "sample_person_role", columnList = "role, id") })
 public class SamplePerson extends AbstractEntity {
 
     private String firstName;
@@ -66,4 +81,21 @@ public class SamplePerson extends AbstractEntity {
         this.important = important;
     }
 
+    /**
+     * A detached copy with the same id and version.
+     */
+    public SamplePerson copy() {
+        SamplePerson copy = new SamplePerson();
+        copy.copyIdentity(this);
+        copy.firstName = firstName;
+        copy.lastName = lastName;
+        copy.email = email;
+        copy.phone = phone;
+        copy.dateOfBirth = dateOfBirth;
+        copy.occupation = occupation;
+        copy.role = role;
+        copy.important = important;
+        return copy;
+    }
+
 }
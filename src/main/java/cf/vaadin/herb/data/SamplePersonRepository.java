@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 public interface SamplePersonRepository
         extends
             JpaRepository<SamplePerson, Long>,
-            JpaSpecificationExecutor<SamplePerson> {
+            JpaSpecificationExecutor<SamplePerson>,
+            SamplePersonRowQueries {
 
 }
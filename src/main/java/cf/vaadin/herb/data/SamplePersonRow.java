@@ -0,0 +1,13 @@
+package cf.vaadin.herb.data;
+
+import java.time.LocalDate;
+
+/**
+ * The columns of a {@link SamplePerson} shown in the grids. Read with a
+ * constructor expression, so no entity is loaded, tracked or kept in the
+ * persistence context for it. The components are named after the entity
+ * properties, so grid sort orders apply to both.
+ */
+public record SamplePersonRow(Long id, String firstName, String lastName, String email, String phone,
+        LocalDate dateOfBirth, String occupation, String role, boolean important) {
+}
@@ -0,0 +1,27 @@
+package cf.vaadin.herb.data;
+
+import java.util.List;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Queries for {@link SamplePersonRow} projections, implemented by
+ * {@link SamplePersonRowQueriesImpl} as a fragment of
+ * {@link SamplePersonRepository}.
+ */
+public interface SamplePersonRowQueries {
+
+    /**
+     * Reads up to {@code limit} rows matching the filter that follow the given
+     * forward keyset position in the given order.
+     */
+    List<SamplePersonRow> findRows(Specification<SamplePerson> filter, KeysetScrollPosition position, int limit,
+            Sort sort);
+
+    /**
+     * Reads up to {@code limit} rows matching the filter from the given offset
+     * in the given order.
+     */
+    List<SamplePersonRow> findRows(Specification<SamplePerson> filter, long offset, int limit, Sort sort);
+}
@@ -0,0 +1,129 @@
+package cf.vaadin.herb.data;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Selects only the grid columns with a constructor expression. The read-only
+ * transaction lets Hibernate skip the flush before the query and the dirty
+ * checking after it.
+ */
+@Transactional(readOnly = true)
+class SamplePersonRowQueriesImpl implements SamplePersonRowQueries {
+
+    private final EntityManager entityManager;
+
+    SamplePersonRowQueriesImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<SamplePersonRow> findRows(Specification<SamplePerson> filter, KeysetScrollPosition position,
+            int limit, Sort sort) {
+        if (position.scrollsBackward()) {
+            throw new IllegalArgumentException("Only forward keyset positions are supported");
+        }
+        return find(filter, position.getKeys(), 0, limit, sort);
+    }
+
+    @Override
+    public List<SamplePersonRow> findRows(Specification<SamplePerson> filter, long offset, int limit, Sort sort) {
+        return find(filter, Map.of(), offset, limit, sort);
+    }
+
+    private List<SamplePersonRow> find(Specification<SamplePerson> filter, Map<String, Object> keys, long offset,
+            int limit, Sort sort) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<SamplePersonRow> query = criteriaBuilder.createQuery(SamplePersonRow.class);
+        Root<SamplePerson> root = query.from(SamplePerson.class);
+        query.select(criteriaBuilder.construct(SamplePersonRow.class, root.get("id"), root.get("firstName"),
+                root.get("lastName"), root.get("email"), root.get("phone"), root.get("dateOfBirth"),
+                root.get("occupation"), root.get("role"), root.get("important")));
+
+        List<Predicate> predicates = new ArrayList<>();
+        Predicate filterPredicate = filter.toPredicate(root, query, criteriaBuilder);
+        if (filterPredicate != null) {
+            predicates.add(filterPredicate);
+        }
+        if (!keys.isEmpty()) {
+            predicates.add(after(keys, sort, root, criteriaBuilder));
+        }
+        query.where(predicates.toArray(Predicate[]::new));
+        query.orderBy(QueryUtils.toOrders(sort, root, criteriaBuilder));
+
+        return entityManager.createQuery(query)
+                .setFirstResult(Math.toIntExact(offset))
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /*
+     * (a > ?) or (a = ? and b > ?) or ... for the sort properties a, b, ...,
+     * with < for descending ones. Nulls are compared the way H2 orders them by
+     * default, lower than any value: first in ascending and last in descending
+     * order. Comparisons with null are never true, so null keys and null
+     * columns get explicit IS NULL and IS NOT NULL conditions.
+     *
+     * JPA criteria have no row value comparison, so the alternatives are
+     * preceded by the range of the first property they all lie in, a >= ? for
+     * an ascending one. The database starts the scan of the index on the first
+     * property and the id there instead of filtering the whole table.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Predicate after(Map<String, Object> keys, Sort sort, Root<SamplePerson> root,
+            CriteriaBuilder criteriaBuilder) {
+        List<Predicate> alternatives = new ArrayList<>();
+        List<Predicate> equalBefore = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            Expression<Comparable> property = root.get(order.getProperty());
+            Comparable key = (Comparable) keys.get(order.getProperty());
+            Predicate following = following(property, key, order.isAscending(), criteriaBuilder);
+            if (following != null) {
+                List<Predicate> conditions = new ArrayList<>(equalBefore);
+                conditions.add(following);
+                alternatives.add(criteriaBuilder.and(conditions.toArray(Predicate[]::new)));
+            }
+            equalBefore.add(key == null ? criteriaBuilder.isNull(property) : criteriaBuilder.equal(property, key));
+        }
+        Predicate after = criteriaBuilder.or(alternatives.toArray(Predicate[]::new));
+        Sort.Order first = sort.iterator().next();
+        Predicate range = range(root.get(first.getProperty()), (Comparable) keys.get(first.getProperty()),
+                first.isAscending(), criteriaBuilder);
+        return range == null ? after : criteriaBuilder.and(range, after);
+    }
+
+    // The condition for values after the key in one sort property, null if no value can follow it
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Predicate following(Expression<Comparable> property, Comparable key, boolean ascending,
+            CriteriaBuilder criteriaBuilder) {
+        if (ascending) {
+            return key == null ? criteriaBuilder.isNotNull(property) : criteriaBuilder.greaterThan(property, key);
+        }
+        return key == null ? null
+                : criteriaBuilder.or(criteriaBuilder.lessThan(property, key), criteriaBuilder.isNull(property));
+    }
+
+    // The condition for the key and the values after it in one sort property, null if all values qualify
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Predicate range(Expression<Comparable> property, Comparable key, boolean ascending,
+            CriteriaBuilder criteriaBuilder) {
+        if (ascending) {
+            return key == null ? null : criteriaBuilder.greaterThanOrEqualTo(property, key);
+        }
+        return key == null ? criteriaBuilder.isNull(property)
+                : criteriaBuilder.or(criteriaBuilder.lessThanOrEqualTo(property, key),
+                        criteriaBuilder.isNull(property));
+    }
+}
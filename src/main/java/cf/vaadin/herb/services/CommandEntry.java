@@ -0,0 +1,14 @@
+package cf.vaadin.herb.services;
+
+/**
+ * A command executed by some user.
+ *
+ * @param sequence
+ *            the position of the command in the command journal, starting from 0
+ * @param command
+ *            the command text
+ * @param executedAt
+ *            when the command was executed, in epoch milliseconds
+ */
+public record CommandEntry(long sequence, String command, long executedAt) {
+}
@@ -0,0 +1,56 @@
+package cf.vaadin.herb.services;
+
+import com.vaadin.signals.Signal;
+import com.vaadin.signals.ValueSignal;
+
+/**
+ * A command submitted to the {@link CommandExecutor}. The status, duration and
+ * result are signals written by the thread running the command, so the UI can
+ * bind to them and gets the changes pushed as they happen.
+ */
+public final class CommandExecution {
+
+    private final String command;
+    private final ValueSignal<CommandStatus> statusSignal = new ValueSignal<>(CommandStatus.QUEUED);
+    // Written once per command, boxing the duration costs nothing worth avoiding
+    private final ValueSignal<Long> durationSignal = new ValueSignal<>(0L);
+    private final ValueSignal<String> resultSignal = new ValueSignal<>("");
+
+    CommandExecution(String command) {
+        this.command = command;
+    }
+
+    public String command() {
+        return command;
+    }
+
+    public Signal<CommandStatus> status() {
+        return statusSignal;
+    }
+
+    /**
+     * How long the command ran in milliseconds, set once it is done or failed.
+     */
+    public Signal<Long> durationMillis() {
+        return durationSignal;
+    }
+
+    /**
+     * The output of a command that is done, or the error of a failed one.
+     */
+    public Signal<String> result() {
+        return resultSignal;
+    }
+
+    void started() {
+        statusSignal.value(CommandStatus.RUNNING);
+    }
+
+    void finished(CommandStatus status, String result, long durationMillis) {
+        Signal.runInTransaction(() -> {
+            durationSignal.value(durationMillis);
+            resultSignal.value(result);
+            statusSignal.value(status);
+        });
+    }
+}
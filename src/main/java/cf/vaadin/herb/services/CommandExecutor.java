@@ -0,0 +1,120 @@
+package cf.vaadin.herb.services;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Runs commands in the background, one virtual thread per command.
+ * <p>
+ * At most {@code max-running} commands run at the same time, the others wait
+ * for a slot in the queued state. Once {@code max-pending} commands are queued
+ * or running, further submissions are rejected instead of piling up, so a
+ * burst of commands cannot exhaust the node.
+ * <p>
+ * Commands that complete successfully are recorded in the
+ * {@link CommandHistory}. Failed or interrupted ones are not, so the history
+ * holds the commands that were executed rather than those that were
+ * submitted.
+ */
+@Service
+public class CommandExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(CommandExecutor.class);
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final CommandHistory commandHistory;
+    private final Semaphore pending;
+    private final Semaphore running;
+
+    public CommandExecutor(CommandHistory commandHistory,
+            @Value("${command-executor.max-pending:1000}") int maxPending,
+            @Value("${command-executor.max-running:256}") int maxRunning) {
+        this.commandHistory = commandHistory;
+        pending = new Semaphore(maxPending);
+        running = new Semaphore(maxRunning);
+    }
+
+    /**
+     * Queues a command for execution and returns right away.
+     *
+     * @throws IllegalArgumentException
+     *             if the command is longer than
+     *             {@link CommandHistory#MAX_COMMAND_LENGTH}
+     * @throws RejectedExecutionException
+     *             if too many commands are already queued or running
+     */
+    public CommandExecution submit(String command) {
+        // Checked up front, a command that runs has to fit into the history once it is done
+        if (command.length() > CommandHistory.MAX_COMMAND_LENGTH) {
+            throw new IllegalArgumentException(
+                    "Command of " + command.length() + " characters exceeds " + CommandHistory.MAX_COMMAND_LENGTH);
+        }
+        if (!pending.tryAcquire()) {
+            throw new RejectedExecutionException("Too many commands pending");
+        }
+        CommandExecution execution = new CommandExecution(command);
+        try {
+            executor.execute(() -> run(execution));
+        } catch (RejectedExecutionException e) {
+            pending.release();
+            throw e;
+        }
+        return execution;
+    }
+
+    @PreDestroy
+    void close() {
+        executor.shutdownNow();
+    }
+
+    private void run(CommandExecution execution) {
+        try {
+            running.acquire();
+        } catch (InterruptedException e) {
+            execution.finished(CommandStatus.FAILED, "Interrupted while queued", 0);
+            pending.release();
+            return;
+        }
+        long start = System.nanoTime();
+        boolean done = false;
+        try {
+            execution.started();
+            String result = execute(execution.command());
+            execution.finished(CommandStatus.DONE, result, elapsedMillis(start));
+            done = true;
+        } catch (Exception e) {
+            log.debug("Command {} failed", execution.command(), e);
+            execution.finished(CommandStatus.FAILED, String.valueOf(e.getMessage()), elapsedMillis(start));
+        } finally {
+            running.release();
+            pending.release();
+        }
+        if (done) {
+            // Returns right away, the history is journaled and replicated in the background
+            commandHistory.record(execution.command());
+        }
+    }
+
+    // Commands are not actually executed, they take a while and sometimes fail
+    private String execute(String command) throws InterruptedException {
+        Thread.sleep(ThreadLocalRandom.current().nextLong(200, 3000));
+        if (ThreadLocalRandom.current().nextInt(10) == 0) {
+            throw new IllegalStateException("Command failed: " + command);
+        }
+        return "Executed " + command;
+    }
+
+    private static long elapsedMillis(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
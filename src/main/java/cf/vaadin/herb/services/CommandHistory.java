@@ -0,0 +1,322 @@
+package cf.vaadin.herb.services;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.vaadin.signals.ListSignal;
+import com.vaadin.signals.ListSignal.ListPosition;
+import com.vaadin.signals.Signal;
+import com.vaadin.signals.ValueSignal;
+
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import cf.vaadin.herb.services.journal.CommandJournal;
+import cf.vaadin.herb.services.replication.SignalReplicator;
+import cf.vaadin.herb.signals.LongSignal;
+import cf.vaadin.herb.signals.SignalInstrumentation;
+
+/**
+ * The commands executed by all users.
+ * <p>
+ * Only the most recent commands are kept in a signal, capped by count and by
+ * age. Inserting a command and evicting the entries that fall out of the window
+ * is one transaction. Every command is also written to the
+ * {@link CommandJournal}, older ones are read from there on demand. On startup
+ * the most recent commands are restored from the journal.
+ * <p>
+ * Commands executed on other nodes of the cluster arrive through the
+ * {@link SignalReplicator} and are journaled and inserted like local ones, in
+ * the order of their execution time.
+ * <p>
+ * All journaled commands can be searched through a trigram index that is
+ * updated with every command. Repeated executions of a command are also
+ * counted per distinct command, which backs the most recent and most frequent
+ * commands and shares one copy of the command text between its entries.
+ */
+@Service
+public class CommandHistory {
+
+    static final String REPLICATED_SIGNAL = "command-history";
+
+    /**
+     * The longest command that can be recorded. Its modified UTF-8 encoding
+     * in the replicated payload stays below the 64 KiB a {@code writeUTF}
+     * can hold.
+     */
+    public static final int MAX_COMMAND_LENGTH = 16_384;
+
+    /**
+     * The number of newest commands searched for queries shorter than three
+     * characters, which are not indexed.
+     */
+    public static final int SHORT_QUERY_SCAN_LIMIT = 10_000;
+
+    private static final Logger log = LoggerFactory.getLogger(CommandHistory.class);
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 5;
+    private static final String RECENT_SIGNAL = "command-history.recent";
+
+    private final ValueSignal<String> lastExecutedSignal = new ValueSignal<>("");
+    private final ListSignal<CommandEntry> recentSignal = new ListSignal<>(CommandEntry.class);
+    private final LongSignal journaledSignal;
+
+    private final CommandJournal journal;
+    private final SignalReplicator replicator;
+    private final CommandSearchIndex searchIndex;
+    private final DistinctCommands distinctCommands = new DistinctCommands();
+    // One signal per limit, shared by all views instead of computed again by each of them
+    private final Map<Integer, Signal<List<CommandUsage>>> mostRecentSignals = new ConcurrentHashMap<>();
+    private final Map<Integer, Signal<List<CommandUsage>>> mostFrequentSignals = new ConcurrentHashMap<>();
+    // Journals, indexes and publishes recorded commands one at a time, in the order they were recorded
+    private final ExecutorService recorder = Executors
+            .newSingleThreadExecutor(Thread.ofVirtual().name("command-recorder").factory());
+    private final int maxSize;
+    private final Duration maxAge;
+
+    public CommandHistory(CommandJournal journal, SignalReplicator replicator,
+            @Value("${command-history.max-size:100}") int maxSize,
+            @Value("${command-history.max-age:24h}") Duration maxAge) {
+        this.journal = journal;
+        this.replicator = replicator;
+        this.maxSize = maxSize;
+        this.maxAge = maxAge;
+        searchIndex = new CommandSearchIndex(journal);
+        long journaled = journal.size();
+        for (long sequence = 0; sequence < journaled; sequence++) {
+            CommandEntry entry = journal.read(sequence);
+            searchIndex.add(entry);
+            distinctCommands.add(entry.command(), entry.executedAt());
+        }
+        journaledSignal = new LongSignal(journaled);
+        restore();
+        replicator.register(REPLICATED_SIGNAL, this::applyReplicated);
+    }
+
+    public Signal<String> lastExecuted() {
+        return lastExecutedSignal;
+    }
+
+    /**
+     * The most recent commands, newest first.
+     */
+    public Signal<List<ValueSignal<CommandEntry>>> recent() {
+        return recentSignal;
+    }
+
+    /**
+     * Records an executed command and returns right away. Journaling, indexing
+     * and replicating the command happen in the background, the signals of
+     * this history are updated once the command is journaled.
+     *
+     * @throws IllegalArgumentException
+     *             if the command is longer than {@link #MAX_COMMAND_LENGTH}
+     */
+    public void record(String command) {
+        // Checked up front, a command that cannot be replicated is not journaled either
+        if (command.length() > MAX_COMMAND_LENGTH) {
+            throw new IllegalArgumentException(
+                    "Command of " + command.length() + " characters exceeds " + MAX_COMMAND_LENGTH);
+        }
+        recorder.execute(() -> {
+            try {
+                recordNow(command);
+            } catch (RuntimeException e) {
+                log.warn("Recording command {} failed", command, e);
+            }
+        });
+    }
+
+    @PreDestroy
+    void close() throws InterruptedException {
+        // Commands recorded before the shutdown still make it into the journal
+        recorder.shutdown();
+        recorder.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private void recordNow(String command) {
+        CommandEntry entry;
+        synchronized (this) {
+            long executedAt = System.currentTimeMillis();
+            entry = journal.append(distinctCommands.add(command, executedAt), executedAt);
+            journaled(entry);
+            insert(entry);
+        }
+        // Not under the lock, the replicator holds its own lock while applying entries from other nodes
+        replicator.publish(REPLICATED_SIGNAL, encode(entry));
+    }
+
+    /**
+     * The number of journaled commands, which is also the sequence number the
+     * next journaled command gets.
+     */
+    public long journaledCount() {
+        return journal.size();
+    }
+
+    /**
+     * Reads up to {@code limit} commands journaled before the one with the
+     * given sequence number, in the reverse order they were journaled.
+     */
+    public List<CommandEntry> loadOlder(long beforeSequence, int limit) {
+        return journal.readBefore(beforeSequence, limit);
+    }
+
+    /**
+     * Searches all journaled commands for the text of the query signal,
+     * ignoring case. The result of a query of at least three characters is
+     * updated when the query changes and when commands are added. Queries
+     * shorter than that only search the newest {@link #SHORT_QUERY_SCAN_LIMIT}
+     * commands, once per query, and an empty query returns no commands
+     * without searching.
+     *
+     * @return up to {@code limit} matching commands, newest first
+     */
+    public Signal<CommandSearchResult> search(Signal<String> query, int limit) {
+        return Signal.computed(() -> {
+            String text = query.value();
+            // No command can match, and the index is not asked
+            if (text.isEmpty() || text.length() > MAX_COMMAND_LENGTH) {
+                return CommandSearchResult.EMPTY;
+            }
+            // Short queries scan instead of using the index, which is not repeated for every added command
+            if (text.length() >= 3) {
+                journaledSignal.value();
+            }
+            return searchIndex.search(text, limit);
+        });
+    }
+
+    /**
+     * The distinct commands executed last, most recent first. Callers asking
+     * for the same limit share the signal.
+     */
+    public Signal<List<CommandUsage>> mostRecent(int limit) {
+        return mostRecentSignals.computeIfAbsent(limit, key -> Signal.computed(() -> {
+            journaledSignal.value();
+            return distinctCommands.mostRecent(key);
+        }));
+    }
+
+    /**
+     * The distinct commands executed most often, most frequent first. Callers
+     * asking for the same limit share the signal.
+     */
+    public Signal<List<CommandUsage>> mostFrequent(int limit) {
+        return mostFrequentSignals.computeIfAbsent(limit, key -> Signal.computed(() -> {
+            journaledSignal.value();
+            return distinctCommands.mostFrequent(key);
+        }));
+    }
+
+    private void restore() {
+        List<CommandEntry> latest = journal.readBefore(journal.size(), maxSize);
+        long now = System.currentTimeMillis();
+        Signal.runInTransaction(() -> {
+            for (CommandEntry entry : latest) {
+                if (now - entry.executedAt() > maxAge.toMillis()) {
+                    break;
+                }
+                recentSignal.insertLast(entry);
+            }
+            if (!latest.isEmpty()) {
+                lastExecutedSignal.value(latest.getFirst().command());
+            }
+        });
+    }
+
+    private synchronized void applyReplicated(byte[] payload) {
+        // The replicator hands every operation over once, also across restarts
+        CommandEntry received = decode(payload);
+        CommandEntry entry = journal.append(distinctCommands.add(received.command(), received.executedAt()),
+                received.executedAt());
+        journaled(entry);
+        insert(entry);
+    }
+
+    private void journaled(CommandEntry entry) {
+        searchIndex.add(entry);
+        journaledSignal.value(entry.sequence() + 1);
+    }
+
+    private void insert(CommandEntry entry) {
+        long now = System.currentTimeMillis();
+        if (now - entry.executedAt() > maxAge.toMillis()) {
+            return;
+        }
+        List<ValueSignal<CommandEntry>> entries = recentSignal.peek();
+        int index = 0;
+        while (index < entries.size() && entries.get(index).peek().executedAt() > entry.executedAt()) {
+            index++;
+        }
+        if (index >= maxSize) {
+            return;
+        }
+        int insertAt = index;
+        Signal.runInTransaction(() -> {
+            if (insertAt == 0) {
+                evict(now);
+                recentSignal.insertFirst(entry);
+                lastExecutedSignal.value(entry.command());
+            } else if (insertAt < evict(now)) {
+                recentSignal.insertAt(entry, ListPosition.before(entries.get(insertAt)));
+            } else {
+                recentSignal.insertLast(entry);
+            }
+        });
+        SignalInstrumentation.recordWrite(RECENT_SIGNAL);
+    }
+
+    private static byte[] encode(CommandEntry entry) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(entry.executedAt());
+            out.writeUTF(entry.command());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static CommandEntry decode(byte[] payload) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            long executedAt = in.readLong();
+            return new CommandEntry(-1, in.readUTF(), executedAt);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Removes the oldest entries to make room for one more and returns the
+     * number of entries that are kept.
+     */
+    private int evict(long now) {
+        List<ValueSignal<CommandEntry>> entries = recentSignal.peek();
+        // Room for the entry that is about to be inserted
+        int size = entries.size() + 1;
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            ValueSignal<CommandEntry> oldest = entries.get(i);
+            if (size <= maxSize && now - oldest.peek().executedAt() <= maxAge.toMillis()) {
+                break;
+            }
+            recentSignal.remove(oldest);
+            size--;
+        }
+        return size - 1;
+    }
+}
@@ -0,0 +1,170 @@
+package cf.vaadin.herb.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import cf.vaadin.herb.services.journal.CommandJournal;
+
+/**
+ * Trigram index over the commands in the journal, for substring search.
+ * <p>
+ * For every three character sequence of a lowercased command the index keeps
+ * the ascending sequence numbers of the commands containing it. A query is
+ * answered by intersecting the lists of its trigrams from the newest command,
+ * leapfrogging: every list seeks back to the newest entry not newer than the
+ * current candidate, galloping from where it stopped before, and a list that
+ * has no entry for the candidate moves the candidate back to its own entry.
+ * Each list is therefore walked once at most, skipping over long stretches
+ * that the other lists rule out. The commands in all lists are confirmed
+ * against the command text until enough matches are found.
+ * <p>
+ * Queries shorter than a trigram are not indexed. They scan the newest
+ * {@link CommandHistory#SHORT_QUERY_SCAN_LIMIT} commands only, which the
+ * result reports as incomplete if older commands were left out.
+ */
+class CommandSearchIndex {
+
+    private final CommandJournal journal;
+    private final Map<Long, Postings> postings = new HashMap<>();
+    private long size;
+
+    /**
+     * Creates an empty index, the commands already in the journal have to be
+     * {@linkplain #add(CommandEntry) added} in the order of their sequence
+     * numbers.
+     */
+    CommandSearchIndex(CommandJournal journal) {
+        this.journal = journal;
+    }
+
+    synchronized void add(CommandEntry entry) {
+        String text = entry.command().toLowerCase(Locale.ROOT);
+        int sequence = Math.toIntExact(entry.sequence());
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            postings.computeIfAbsent(trigram(text, i), key -> new Postings()).add(sequence);
+        }
+        size = Math.max(size, entry.sequence() + 1);
+    }
+
+    /**
+     * Finds up to {@code limit} commands containing the query, ignoring case,
+     * newest first.
+     */
+    synchronized CommandSearchResult search(String query, int limit) {
+        String text = query.toLowerCase(Locale.ROOT);
+        if (text.isEmpty()) {
+            return CommandSearchResult.EMPTY;
+        }
+        List<CommandEntry> matches = new ArrayList<>();
+        if (text.length() < 3) {
+            long oldest = Math.max(0, size - CommandHistory.SHORT_QUERY_SCAN_LIMIT);
+            long sequence = size - 1;
+            for (; sequence >= oldest && matches.size() < limit; sequence--) {
+                addIfContains(matches, sequence, text);
+            }
+            // Stopping at the scan limit leaves older matches out, stopping at the limit does not
+            return new CommandSearchResult(matches, matches.size() == limit || sequence < 0);
+        }
+
+        Postings[] lists = new Postings[text.length() - 2];
+        for (int i = 0; i < lists.length; i++) {
+            lists[i] = postings.get(trigram(text, i));
+            if (lists[i] == null) {
+                return CommandSearchResult.EMPTY;
+            }
+        }
+        // The shortest list moves the candidate furthest on every step
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+        int[] positions = new int[lists.length];
+        for (int i = 0; i < lists.length; i++) {
+            positions[i] = lists[i].size - 1;
+        }
+        int candidate = lists[0].sequences[positions[0]];
+        candidates: while (matches.size() < limit) {
+            for (int i = 0; i < lists.length; i++) {
+                positions[i] = lists[i].seek(positions[i], candidate);
+                if (positions[i] < 0) {
+                    break candidates;
+                }
+                int entry = lists[i].sequences[positions[i]];
+                if (entry != candidate) {
+                    candidate = entry;
+                    continue candidates;
+                }
+            }
+            addIfContains(matches, candidate, text);
+            if (candidate == 0) {
+                break;
+            }
+            candidate--;
+        }
+        return new CommandSearchResult(matches, true);
+    }
+
+    private void addIfContains(List<CommandEntry> matches, long sequence, String text) {
+        CommandEntry entry = journal.read(sequence);
+        if (entry.command().toLowerCase(Locale.ROOT).contains(text)) {
+            matches.add(entry);
+        }
+    }
+
+    private static long trigram(String text, int index) {
+        return (long) text.charAt(index) << 32 | (long) text.charAt(index + 1) << 16 | text.charAt(index + 2);
+    }
+
+    /**
+     * Growing array of ascending sequence numbers.
+     */
+    private static final class Postings {
+
+        private int[] sequences = new int[4];
+        private int size;
+
+        void add(int sequence) {
+            // A trigram occurring several times in one command is listed once
+            if (size > 0 && sequences[size - 1] == sequence) {
+                return;
+            }
+            if (size == sequences.length) {
+                sequences = Arrays.copyOf(sequences, size * 2);
+            }
+            sequences[size++] = sequence;
+        }
+
+        /**
+         * The index of the newest entry not newer than the given sequence
+         * number, at or before {@code from}, or {@code -1} if there is none.
+         * Gallops back from {@code from} and then searches the range it
+         * overshot, so short moves stay cheap.
+         */
+        int seek(int from, int sequence) {
+            if (from < 0 || sequences[from] <= sequence) {
+                return from;
+            }
+            // sequences[high] is newer than the sequence throughout
+            int high = from;
+            int step = 1;
+            int low = from - step;
+            while (low >= 0 && sequences[low] > sequence) {
+                high = low;
+                step <<= 1;
+                low = high - step;
+            }
+            int found = -1;
+            for (int first = Math.max(low, 0), last = high - 1; first <= last;) {
+                int middle = (first + last) >>> 1;
+                if (sequences[middle] <= sequence) {
+                    found = middle;
+                    first = middle + 1;
+                } else {
+                    last = middle - 1;
+                }
+            }
+            return found;
+        }
+    }
+}
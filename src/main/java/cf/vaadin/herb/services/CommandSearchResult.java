@@ -0,0 +1,18 @@
+package cf.vaadin.herb.services;
+
+import java.util.List;
+
+/**
+ * The commands found by a search of the command history.
+ *
+ * @param matches
+ *            the matching commands, newest first
+ * @param complete
+ *            {@code false} if only the newest commands were searched, see
+ *            {@link CommandHistory#SHORT_QUERY_SCAN_LIMIT}, and older ones
+ *            may match as well
+ */
+public record CommandSearchResult(List<CommandEntry> matches, boolean complete) {
+
+    static final CommandSearchResult EMPTY = new CommandSearchResult(List.of(), true);
+}
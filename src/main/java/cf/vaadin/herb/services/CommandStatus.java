@@ -0,0 +1,8 @@
+package cf.vaadin.herb.services;
+
+/**
+ * The stages a submitted command goes through.
+ */
+public enum CommandStatus {
+    QUEUED, RUNNING, DONE, FAILED
+}
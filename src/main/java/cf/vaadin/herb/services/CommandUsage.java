@@ -0,0 +1,14 @@
+package cf.vaadin.herb.services;
+
+/**
+ * How often and when a distinct command was executed.
+ *
+ * @param command
+ *            the command text
+ * @param hits
+ *            the number of times the command was executed
+ * @param lastExecutedAt
+ *            when the command was executed last, in epoch milliseconds
+ */
+public record CommandUsage(String command, int hits, long lastExecutedAt) {
+}
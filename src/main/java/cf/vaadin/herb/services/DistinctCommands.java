@@ -0,0 +1,99 @@
+package cf.vaadin.herb.services;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * One node per distinct command, with the number of executions and the time
+ * of the last one as primitives. The nodes are kept in the order of their last
+ * execution, so the most recent commands are read without sorting. They are
+ * also kept ranked by their number of executions, a node moves to its new
+ * place whenever it is counted, so the most frequent commands are read from
+ * the top of the ranking.
+ * <p>
+ * The node holds the only copy of the command text that is kept, entries for
+ * further executions of the same command reuse it.
+ */
+class DistinctCommands {
+
+    // The command text makes the order total, so nodes with equal counts are distinct in the ranking
+    private static final Comparator<Node> BY_HITS = Comparator.<Node> comparingInt(node -> node.hits)
+            .thenComparingLong(node -> node.lastExecutedAt)
+            .thenComparing(node -> node.command);
+
+    // Access order moves a command to the end whenever it is executed again
+    private final LinkedHashMap<String, Node> nodes = new LinkedHashMap<>(16, 0.75f, true);
+    // Least frequent first
+    private final TreeSet<Node> ranking = new TreeSet<>(BY_HITS);
+
+    /**
+     * Counts an execution of a command and returns the instance of the command
+     * text that is shared by all executions.
+     */
+    synchronized String add(String command, long executedAt) {
+        Node node = nodes.get(command);
+        if (node == null) {
+            node = new Node(command);
+            nodes.put(command, node);
+        } else {
+            // Taken out while its sort keys change
+            ranking.remove(node);
+        }
+        node.hits++;
+        // Replicated commands may arrive out of order
+        node.lastExecutedAt = Math.max(node.lastExecutedAt, executedAt);
+        ranking.add(node);
+        return node.command;
+    }
+
+    synchronized int size() {
+        return nodes.size();
+    }
+
+    /**
+     * The commands executed last, most recent first. The order is the order
+     * the executions were counted in.
+     */
+    synchronized List<CommandUsage> mostRecent(int limit) {
+        List<CommandUsage> usages = new ArrayList<>(Math.min(limit, nodes.size()));
+        for (Node node : nodes.sequencedValues().reversed()) {
+            if (usages.size() == limit) {
+                break;
+            }
+            usages.add(node.usage());
+        }
+        return usages;
+    }
+
+    /**
+     * The commands executed most often, most frequent first.
+     */
+    synchronized List<CommandUsage> mostFrequent(int limit) {
+        List<CommandUsage> usages = new ArrayList<>(Math.min(limit, ranking.size()));
+        for (Node node : ranking.descendingSet()) {
+            if (usages.size() == limit) {
+                break;
+            }
+            usages.add(node.usage());
+        }
+        return usages;
+    }
+
+    private static final class Node {
+
+        private final String command;
+        private int hits;
+        private long lastExecutedAt;
+
+        Node(String command) {
+            this.command = command;
+        }
+
+        CommandUsage usage() {
+            return new CommandUsage(command, hits, lastExecutedAt);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package cf.vaadin.herb.services;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import org.springframework.beans.DirectFieldAccessor;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+
+import com.vaadin.flow.data.provider.Query;
+import com.vaadin.flow.spring.data.VaadinSpringDataHelpers;
+
+/**
+ * Fetch callback for lazy grids that reads by keyset instead of by offset.
+ * <p>
+ * The grid asks for rows by offset. For every page it reads, the pager
+ * remembers the sort key and id of the row that follows, so the next page is
+ * read with a {@code WHERE (sortKey, id) > (?, ?)} seek that costs the same at
+ * any depth. Offsets the pager has no position for, e.g. after dragging the
+ * scroll bar far down, are read from the closest known position before them,
+ * or by offset if that is more than a few pages away. Positions are only valid
+ * for one sort order and the data they were read from, so they are dropped
+ * when the sort changes and have to be {@linkplain #reset() reset} when the
+ * filter or the data changes.
+ */
+public class KeysetPager<T> implements Serializable {
+
+    /**
+     * Reads up to {@code limit} items after a keyset position, in the given
+     * order.
+     */
+    @FunctionalInterface
+    public interface KeysetFetch<T> extends Serializable {
+        List<T> fetch(KeysetScrollPosition position, int limit, Sort sort);
+    }
+
+    /**
+     * Reads the page at an offset, for offsets without a position nearby.
+     */
+    @FunctionalInterface
+    public interface OffsetFetch<T> extends Serializable {
+        List<T> fetch(long offset, int limit, Sort sort);
+    }
+
+    private static final String ID = "id";
+    private static final int MAX_SKIPPED_PAGES = 4;
+
+    private final KeysetFetch<T> keysetFetch;
+    private final OffsetFetch<T> offsetFetch;
+    private final TreeMap<Integer, KeysetScrollPosition> positions = new TreeMap<>();
+    private Sort sort;
+
+    public KeysetPager(KeysetFetch<T> keysetFetch, OffsetFetch<T> offsetFetch) {
+        this.keysetFetch = keysetFetch;
+        this.offsetFetch = offsetFetch;
+    }
+
+    public Stream<T> fetch(Query<T, ?> query) {
+        Sort querySort = VaadinSpringDataHelpers.toSpringDataSort(query);
+        // The id makes the order total, so every row has a distinct position
+        Sort keysetSort = querySort.getOrderFor(ID) == null ? querySort.and(Sort.by(ID)) : querySort;
+        if (!keysetSort.equals(sort)) {
+            reset();
+            sort = keysetSort;
+        }
+
+        int offset = query.getOffset();
+        int limit = query.getLimit();
+        Entry<Integer, KeysetScrollPosition> closest = positions.floorEntry(offset);
+        int skip = offset - closest.getKey();
+        List<T> items;
+        if (skip <= MAX_SKIPPED_PAGES * limit) {
+            List<T> read = keysetFetch.fetch(closest.getValue(), skip + limit, keysetSort);
+            items = read.subList(Math.min(skip, read.size()), read.size());
+        } else {
+            items = offsetFetch.fetch(offset, limit, keysetSort);
+        }
+        if (!items.isEmpty()) {
+            remember(offset + items.size(), items.getLast());
+        }
+        return items.stream();
+    }
+
+    /**
+     * Forgets all positions, to be called when the rows before a position may
+     * have changed.
+     */
+    public void reset() {
+        positions.clear();
+        positions.put(0, ScrollPosition.keyset());
+    }
+
+    private void remember(int offset, T last) {
+        // Reads the fields of records and entities alike, the sort properties are named after them
+        DirectFieldAccessor fields = new DirectFieldAccessor(last);
+        Map<String, Object> keys = new LinkedHashMap<>();
+        for (Sort.Order order : sort) {
+            // Null keys are kept, the keyset query orders nulls the way the database does
+            keys.put(order.getProperty(), fields.getPropertyValue(order.getProperty()));
+        }
+        positions.put(offset, ScrollPosition.forward(keys));
+    }
+}
@@ -0,0 +1,111 @@
+package cf.vaadin.herb.services;
+
+import cf.vaadin.herb.data.SamplePerson;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.lang.Nullable;
+
+/**
+ * The person filter criteria at one point in time. Immutable and compared by
+ * value, so equal criteria from different sessions share cached pages.
+ * <p>
+ * Text criteria are stored the way they are matched, lower case and with the
+ * characters the phone match ignores removed, so criteria that select the same
+ * persons are equal.
+ *
+ * @param name
+ *            the start of the first or last name, empty to match all
+ * @param phone
+ *            a part of the phone number, empty to match all
+ * @param bornFrom
+ *            the earliest date of birth, inclusive
+ * @param bornTo
+ *            the latest date of birth, inclusive
+ * @param occupations
+ *            the occupations to match, empty to match all
+ * @param roles
+ *            the roles to match, empty to match all
+ */
+public record PersonFilter(String name, String phone, @Nullable LocalDate bornFrom, @Nullable LocalDate bornTo,
+        Set<String> occupations, Set<String> roles) implements Specification<SamplePerson> {
+
+    public static final PersonFilter NONE = new PersonFilter("", "", null, null, Set.of(), Set.of());
+
+    private static final String PHONE_IGNORED = "- ()";
+
+    public PersonFilter {
+        name = name.toLowerCase();
+        phone = ignoreCharacters(PHONE_IGNORED, phone.toLowerCase());
+        occupations = Set.copyOf(occupations);
+        roles = Set.copyOf(roles);
+    }
+
+    @Override
+    public Predicate toPredicate(Root<SamplePerson> root, CriteriaQuery<?> query, CriteriaBuilder criteriaBuilder) {
+        List<Predicate> predicates = new ArrayList<>();
+
+        if (!name.isEmpty()) {
+            Predicate firstNameMatch = criteriaBuilder.like(criteriaBuilder.lower(root.get("firstName")),
+                    name + "%");
+            Predicate lastNameMatch = criteriaBuilder.like(criteriaBuilder.lower(root.get("lastName")),
+                    name + "%");
+            predicates.add(criteriaBuilder.or(firstNameMatch, lastNameMatch));
+        }
+        if (!phone.isEmpty()) {
+            Predicate phoneMatch = criteriaBuilder.like(
+                    ignoreCharacters(PHONE_IGNORED, criteriaBuilder, criteriaBuilder.lower(root.get("phone"))),
+                    "%" + phone + "%");
+            predicates.add(phoneMatch);
+        }
+        if (bornFrom != null) {
+            predicates.add(criteriaBuilder.greaterThanOrEqualTo(root.get("dateOfBirth"),
+                    criteriaBuilder.literal(bornFrom)));
+        }
+        if (bornTo != null) {
+            predicates.add(criteriaBuilder.greaterThanOrEqualTo(criteriaBuilder.literal(bornTo),
+                    root.get("dateOfBirth")));
+        }
+        if (!occupations.isEmpty()) {
+            List<Predicate> occupationPredicates = new ArrayList<>();
+            for (String occupation : occupations) {
+                occupationPredicates.add(criteriaBuilder.equal(criteriaBuilder.literal(occupation),
+                        root.get("occupation")));
+            }
+            predicates.add(criteriaBuilder.or(occupationPredicates.toArray(Predicate[]::new)));
+        }
+        if (!roles.isEmpty()) {
+            List<Predicate> rolePredicates = new ArrayList<>();
+            for (String role : roles) {
+                rolePredicates.add(criteriaBuilder.equal(criteriaBuilder.literal(role), root.get("role")));
+            }
+            predicates.add(criteriaBuilder.or(rolePredicates.toArray(Predicate[]::new)));
+        }
+        return criteriaBuilder.and(predicates.toArray(Predicate[]::new));
+    }
+
+    private static String ignoreCharacters(String characters, String in) {
+        String result = in;
+        for (int i = 0; i < characters.length(); i++) {
+            result = result.replace("" + characters.charAt(i), "");
+        }
+        return result;
+    }
+
+    private static Expression<String> ignoreCharacters(String characters, CriteriaBuilder criteriaBuilder,
+            Expression<String> inExpression) {
+        Expression<String> expression = inExpression;
+        for (int i = 0; i < characters.length(); i++) {
+            expression = criteriaBuilder.function("replace", String.class, expression,
+                    criteriaBuilder.literal(characters.charAt(i)), criteriaBuilder.literal(""));
+        }
+        return expression;
+    }
+}
@@ -0,0 +1,66 @@
+package cf.vaadin.herb.services;
+
+import cf.vaadin.herb.data.SamplePersonRow;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Pages of person rows by the filter, sort and position they were read with,
+ * shared by all sessions. The least recently read page is dropped once more
+ * than the maximum number of pages are kept.
+ * <p>
+ * Any write may move persons between pages, so a write clears all pages. A
+ * page read while a write was made is not kept, it may be from before the
+ * write.
+ */
+class PersonPageCache {
+
+    /**
+     * @param position
+     *            the keyset scroll position or the offset the page starts at
+     */
+    record Key(PersonFilter filter, Sort sort, Object position, int limit) {
+    }
+
+    private final int maxPages;
+    // Access order keeps the least recently read page first
+    private final LinkedHashMap<Key, List<SamplePersonRow>> pages;
+    private long generation;
+
+    PersonPageCache(int maxPages) {
+        this.maxPages = maxPages;
+        this.pages = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, List<SamplePersonRow>> eldest) {
+                return size() > PersonPageCache.this.maxPages;
+            }
+        };
+    }
+
+    List<SamplePersonRow> get(Key key, Supplier<List<SamplePersonRow>> loader) {
+        long loadedGeneration;
+        synchronized (this) {
+            List<SamplePersonRow> page = pages.get(key);
+            if (page != null) {
+                return page;
+            }
+            loadedGeneration = generation;
+        }
+        // Read outside the lock, sessions asking for the same page at once may both read it
+        List<SamplePersonRow> page = List.copyOf(loader.get());
+        synchronized (this) {
+            if (generation == loadedGeneration) {
+                pages.put(key, page);
+            }
+        }
+        return page;
+    }
+
+    synchronized void clear() {
+        generation++;
+        pages.clear();
+    }
+}
@@ -2,43 +2,175 @@ package cf.vaadin.herb.services;
 
 import cf.vaadin.herb.data.SamplePerson;
 import cf.vaadin.herb.data.SamplePersonRepository;
+import cf.vaadin.herb.data.SamplePersonRow;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.List;
 import java.util.Optional;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.jpa.domain.Specification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
 @Service
 public class SamplePersonService {
 
+    private static final Logger log = LoggerFactory.getLogger(SamplePersonService.class);
+
+    // The row count H2 keeps in its table statistics, without scanning the table
+    private static final String ESTIMATE_QUERY = "SELECT ROW_COUNT_ESTIMATE FROM INFORMATION_SCHEMA.TABLES"
+            + " WHERE UPPER(TABLE_NAME) = 'SAMPLE_PERSON'";
+
     private final SamplePersonRepository repository;
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean estimateCount;
+    /*
+     * Persons by id, bounded by size and age. Caffeine evicts by frequency and
+     * recency (W-TinyLFU), so persons opened again and again stay cached. The
+     * entries are never handed out, callers get copies they may modify.
+     */
+    private final Cache<Long, SamplePerson> persons;
+    private final PersonPageCache pages;
+    private final Object countLock = new Object();
+    // The exact count, or -1 if it has to be read again
+    private long count = -1;
+    // Incremented by every write that changes the count
+    private long countGeneration;
 
-    public SamplePersonService(SamplePersonRepository repository) {
+    public SamplePersonService(SamplePersonRepository repository, JdbcTemplate jdbcTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${sample-person.count.estimate:false}") boolean estimateCount,
+            @Value("${sample-person.cache.maximum-size:10000}") long cacheMaximumSize,
+            @Value("${sample-person.cache.expire-after-write:10m}") Duration cacheExpireAfterWrite,
+            @Value("${sample-person.page-cache.max-pages:500}") int pageCacheMaxPages) {
         this.repository = repository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.estimateCount = estimateCount;
+        this.persons = Caffeine.newBuilder()
+                .maximumSize(cacheMaximumSize)
+                .expireAfterWrite(cacheExpireAfterWrite)
+                .recordStats()
+                .build();
+        // cache.gets with result hit or miss, cache.evictions and cache.size, tagged cache=sample-person
+        CaffeineCacheMetrics.monitor(meterRegistry, persons, "sample-person");
+        this.pages = new PersonPageCache(pageCacheMaxPages);
     }
 
     public Optional<SamplePerson> get(Long id) {
-        return repository.findById(id);
+        // A missing person is not cached, get returns null for it
+        SamplePerson cached = persons.get(id, key -> repository.findById(key).orElse(null));
+        return Optional.ofNullable(cached).map(SamplePerson::copy);
     }
 
+    /**
+     * Saves the person and drops it from the cache, also when the save fails.
+     * After an optimistic locking conflict the next {@link #get(Long)} reads
+     * the newer version from the database instead of the one that conflicted.
+     */
     public SamplePerson save(SamplePerson entity) {
-        return repository.save(entity);
+        boolean created = entity.getId() == null;
+        try {
+            SamplePerson saved = repository.save(entity);
+            if (created) {
+                invalidateCount();
+            }
+            return saved;
+        } finally {
+            pages.clear();
+            if (!created) {
+                // Waits for a load of the same id in progress, the old version cannot be put back
+                persons.invalidate(entity.getId());
+            }
+        }
     }
 
     public void delete(Long id) {
-        repository.deleteById(id);
+        try {
+            repository.deleteById(id);
+            invalidateCount();
+        } finally {
+            pages.clear();
+            persons.invalidate(id);
+        }
     }
 
-    public Page<SamplePerson> list(Pageable pageable) {
-        return repository.findAll(pageable);
+    /**
+     * Reads up to {@code limit} grid rows matching the filter following the
+     * given keyset position. The sort has to end with a unique property such
+     * as the id, the query seeks to the position instead of skipping the rows
+     * before it. The page is cached for all sessions until the next write
+     * through this service.
+     */
+    public List<SamplePersonRow> find(PersonFilter filter, KeysetScrollPosition position, int limit, Sort sort) {
+        return pages.get(new PersonPageCache.Key(filter, sort, position, limit),
+                () -> repository.findRows(filter, position, limit, sort));
     }
 
-    public Page<SamplePerson> list(Pageable pageable, Specification<SamplePerson> filter) {
-        return repository.findAll(filter, pageable);
+    /**
+     * Reads up to {@code limit} grid rows matching the filter from the given
+     * offset. Cached like
+     * {@link #find(PersonFilter, KeysetScrollPosition, int, Sort)}.
+     */
+    public List<SamplePersonRow> find(PersonFilter filter, long offset, int limit, Sort sort) {
+        return pages.get(new PersonPageCache.Key(filter, sort, offset, limit),
+                () -> repository.findRows(filter, offset, limit, sort));
     }
 
+    /**
+     * The exact number of persons. The count is cached until a person is
+     * created or deleted through this service.
+     */
     public int count() {
-        return (int) repository.count();
+        long generation;
+        synchronized (countLock) {
+            if (count >= 0) {
+                return (int) count;
+            }
+            generation = countGeneration;
+        }
+        // Counted outside the lock, a count read while a person was created or deleted is not kept
+        long counted = repository.count();
+        synchronized (countLock) {
+            if (countGeneration == generation) {
+                count = counted;
+            }
+        }
+        return (int) counted;
+    }
+
+    private void invalidateCount() {
+        synchronized (countLock) {
+            countGeneration++;
+            count = -1;
+        }
+    }
+
+    /**
+     * The number of persons to size a grid with. With
+     * {@code sample-person.count.estimate} set this is the row count estimate
+     * of the table statistics, which may be off but costs nothing. It is used
+     * for filtered grids as well, as an upper bound the grid corrects once it
+     * reaches the end of the data. Otherwise it is the cached exact count.
+     */
+    public int sizeEstimate() {
+        if (estimateCount) {
+            try {
+                Long estimate = jdbcTemplate.queryForObject(ESTIMATE_QUERY, Long.class);
+                if (estimate != null) {
+                    return (int) Math.min(estimate, Integer.MAX_VALUE);
+                }
+            } catch (DataAccessException e) {
+                log.debug("No row count estimate for the person table, counting instead", e);
+            }
+        }
+        return count();
     }
 
 }
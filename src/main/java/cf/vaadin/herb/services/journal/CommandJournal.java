@@ -0,0 +1,131 @@
+package cf.vaadin.herb.services.journal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import cf.vaadin.herb.services.CommandEntry;
+
+/**
+ * Durable append-only journal of every executed command.
+ * <p>
+ * The journal is split into memory-mapped segments of a fixed size in the
+ * configured directory, named after the sequence number of their first
+ * command. When a command does not fit into the last segment a new one is
+ * started, so a command must fit into an empty segment. Every segment has an
+ * offset index, so any command can be read by its sequence number without
+ * scanning the journal.
+ */
+@Component
+public class CommandJournal {
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final NavigableMap<Long, JournalSegment> segments = new TreeMap<>();
+
+    public CommandJournal(
+            @Value("${command-history.journal.directory:${java.io.tmpdir}/more-signals/commands}") String directory,
+            @Value("${command-history.journal.segment-size:16MB}") DataSize segmentSize) {
+        this.directory = Path.of(directory);
+        this.segmentBytes = Math.toIntExact(segmentSize.toBytes());
+        try {
+            Files.createDirectories(this.directory);
+            try (Stream<Path> files = Files.list(this.directory)) {
+                for (Path file : files.filter(file -> file.getFileName().toString().endsWith(".log")).toList()) {
+                    String name = file.getFileName().toString();
+                    long firstSequence = Long.parseLong(name.substring(0, name.length() - ".log".length()));
+                    segments.put(firstSequence, new JournalSegment(this.directory, firstSequence, segmentBytes));
+                }
+            }
+            if (segments.isEmpty()) {
+                segments.put(0L, new JournalSegment(this.directory, 0, segmentBytes));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Appends a command.
+     *
+     * @throws IllegalArgumentException
+     *             if the command does not fit into a segment
+     */
+    public synchronized CommandEntry append(String command, long executedAt) {
+        byte[] bytes = command.getBytes(StandardCharsets.UTF_8);
+        if (JournalSegment.RECORD_HEADER_BYTES + bytes.length > segmentBytes) {
+            throw new IllegalArgumentException("Command of " + bytes.length
+                    + " bytes does not fit into a journal segment of " + segmentBytes + " bytes");
+        }
+        try {
+            JournalSegment last = segments.lastEntry().getValue();
+            CommandEntry entry = last.append(command, bytes, executedAt);
+            if (entry == null) {
+                // A record that fits into a segment always fits into an empty one, which is never rolled over
+                if (last.isEmpty()) {
+                    throw new IllegalStateException("Empty journal segment " + last.firstSequence() + " is full");
+                }
+                long next = size();
+                JournalSegment segment = new JournalSegment(directory, next, segmentBytes);
+                segments.put(next, segment);
+                entry = segment.append(command, bytes, executedAt);
+            }
+            return entry;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The number of commands in the journal, which is also the sequence number
+     * of the next command.
+     */
+    public synchronized long size() {
+        return segments.lastEntry().getValue().nextSequence();
+    }
+
+    public synchronized CommandEntry read(long sequence) {
+        if (sequence < 0 || sequence >= size()) {
+            throw new IndexOutOfBoundsException("No command " + sequence + " in a journal of " + size());
+        }
+        return segments.floorEntry(sequence).getValue().read(sequence);
+    }
+
+    /**
+     * Reads up to {@code limit} commands journaled before the given sequence
+     * number, newest first.
+     */
+    public synchronized List<CommandEntry> readBefore(long sequence, int limit) {
+        List<CommandEntry> entries = new ArrayList<>();
+        long from = Math.max(0, Math.min(sequence, size()) - limit);
+        for (long next = Math.min(sequence, size()) - 1; next >= from; next--) {
+            Map.Entry<Long, JournalSegment> segment = segments.floorEntry(next);
+            if (segment == null) {
+                break;
+            }
+            entries.add(segment.getValue().read(next));
+        }
+        return entries;
+    }
+
+    @PreDestroy
+    synchronized void close() throws IOException {
+        for (JournalSegment segment : segments.values()) {
+            segment.close();
+        }
+    }
+}
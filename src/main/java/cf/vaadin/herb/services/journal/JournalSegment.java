@@ -0,0 +1,177 @@
+package cf.vaadin.herb.services.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+import cf.vaadin.herb.services.CommandEntry;
+
+/**
+ * One segment of the command journal: a data file with the records and an
+ * index file with the offset of every record in the data file, both mapped
+ * into memory.
+ * <p>
+ * A record is the length of the command in bytes, the execution time, a
+ * CRC32C checksum of the execution time and the command, and the UTF-8 encoded
+ * command. The data file is mapped at its full size up front, the index grows
+ * as needed. The index starts with the number of committed records, a record
+ * only counts once that header includes it, so a record that was being written
+ * when the process died is overwritten by the next append. If the index is
+ * lost it is rebuilt by following the length prefixes up to the first record
+ * that does not fit into the segment or whose checksum does not match.
+ */
+final class JournalSegment implements Closeable {
+
+    static final int RECORD_HEADER_BYTES = Integer.BYTES + Long.BYTES + Integer.BYTES;
+
+    private static final int EXECUTED_AT_OFFSET = Integer.BYTES;
+    private static final int CHECKSUM_OFFSET = Integer.BYTES + Long.BYTES;
+
+    private static final int INDEX_HEADER_BYTES = Long.BYTES;
+    private static final long INITIAL_INDEX_ENTRIES = 1024;
+
+    private final long firstSequence;
+    private final FileChannel dataChannel;
+    private final FileChannel indexChannel;
+    private final MappedByteBuffer data;
+    private MappedByteBuffer index;
+    private long indexCapacity;
+    private int size;
+    private int end;
+
+    JournalSegment(Path directory, long firstSequence, int segmentBytes) throws IOException {
+        this.firstSequence = firstSequence;
+        Path indexFile = directory.resolve(String.format("%020d.idx", firstSequence));
+        boolean rebuildIndex = !Files.exists(indexFile);
+        dataChannel = FileChannel.open(directory.resolve(String.format("%020d.log", firstSequence)),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        indexChannel = FileChannel.open(indexFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        // An existing segment keeps the size it was written with
+        data = dataChannel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(segmentBytes, dataChannel.size()));
+        mapIndex(Math.max(INITIAL_INDEX_ENTRIES, (indexChannel.size() - INDEX_HEADER_BYTES) / Long.BYTES));
+        if (rebuildIndex) {
+            rebuildIndex();
+        }
+        size = (int) index.getLong(0);
+        end = size == 0 ? 0 : recordEnd(size - 1);
+    }
+
+    long firstSequence() {
+        return firstSequence;
+    }
+
+    /**
+     * The sequence number the next record appended to this segment gets.
+     */
+    long nextSequence() {
+        return firstSequence + size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Appends a record, unless it does not fit into the rest of the segment.
+     *
+     * @param bytes
+     *            the command encoded as UTF-8
+     * @return the appended entry, or {@code null} if the segment is full
+     */
+    CommandEntry append(String command, byte[] bytes, long executedAt) throws IOException {
+        if (end + RECORD_HEADER_BYTES + bytes.length > data.capacity()) {
+            return null;
+        }
+        if (size == indexCapacity) {
+            mapIndex(indexCapacity * 2);
+        }
+        data.putInt(end, bytes.length);
+        data.putLong(end + EXECUTED_AT_OFFSET, executedAt);
+        data.put(end + RECORD_HEADER_BYTES, bytes);
+        data.putInt(end + CHECKSUM_OFFSET, checksum(end, bytes.length));
+        index.putLong(indexPosition(size), end);
+        CommandEntry entry = new CommandEntry(firstSequence + size, command, executedAt);
+        end += RECORD_HEADER_BYTES + bytes.length;
+        size++;
+        index.putLong(0, size);
+        return entry;
+    }
+
+    CommandEntry read(long sequence) {
+        int position = offset((int) (sequence - firstSequence));
+        byte[] bytes = new byte[data.getInt(position)];
+        data.get(position + RECORD_HEADER_BYTES, bytes);
+        return new CommandEntry(sequence, new String(bytes, StandardCharsets.UTF_8),
+                data.getLong(position + EXECUTED_AT_OFFSET));
+    }
+
+    @Override
+    public void close() throws IOException {
+        data.force();
+        index.force();
+        dataChannel.close();
+        indexChannel.close();
+    }
+
+    private void rebuildIndex() throws IOException {
+        int records = 0;
+        int position = 0;
+        while (isRecord(position)) {
+            if (records == indexCapacity) {
+                mapIndex(indexCapacity * 2);
+            }
+            index.putLong(indexPosition(records), position);
+            position += RECORD_HEADER_BYTES + data.getInt(position);
+            records++;
+        }
+        index.putLong(0, records);
+    }
+
+    private boolean isRecord(int position) {
+        // Mapped files are zero filled, the first record without an execution time ends the records
+        if (position + RECORD_HEADER_BYTES > data.capacity() || data.getLong(position + EXECUTED_AT_OFFSET) == 0) {
+            return false;
+        }
+        // A torn length may point anywhere, a torn command does not match the checksum
+        int length = data.getInt(position);
+        return length >= 0 && length <= data.capacity() - position - RECORD_HEADER_BYTES
+                && data.getInt(position + CHECKSUM_OFFSET) == checksum(position, length);
+    }
+
+    // Covers the execution time and the command of the record at the position
+    private int checksum(int position, int length) {
+        CRC32C checksum = new CRC32C();
+        checksum.update(data.slice(position + EXECUTED_AT_OFFSET, Long.BYTES));
+        checksum.update(data.slice(position + RECORD_HEADER_BYTES, length));
+        return (int) checksum.getValue();
+    }
+
+    private int offset(int record) {
+        return (int) index.getLong(indexPosition(record));
+    }
+
+    private static int indexPosition(int record) {
+        return INDEX_HEADER_BYTES + record * Long.BYTES;
+    }
+
+    private int recordEnd(int record) {
+        int position = offset(record);
+        return position + RECORD_HEADER_BYTES + data.getInt(position);
+    }
+
+    private void mapIndex(long entries) throws IOException {
+        long bytes = INDEX_HEADER_BYTES + entries * Long.BYTES;
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IOException("Journal index is full at " + indexCapacity + " records");
+        }
+        index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+        indexCapacity = entries;
+    }
+}
@@ -0,0 +1,4 @@
+@NonNullApi
+package cf.vaadin.herb.services.journal;
+
+import org.springframework.lang.NonNullApi;
@@ -0,0 +1,21 @@
+package cf.vaadin.herb.services.metrics;
+
+/**
+ * Values of a time range aggregated into buckets, oldest first. Buckets
+ * without any values are left out.
+ *
+ * @param timestamps
+ *            the start of each bucket in epoch milliseconds
+ * @param min
+ *            the smallest value of each bucket
+ * @param max
+ *            the largest value of each bucket
+ * @param avg
+ *            the average value of each bucket
+ */
+public record Downsampled(long[] timestamps, double[] min, double[] max, double[] avg) {
+
+    public int size() {
+        return timestamps.length;
+    }
+}
@@ -0,0 +1,109 @@
+package cf.vaadin.herb.services.metrics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Append-only file of fixed-size records made of 8 byte slots, mapped into
+ * memory.
+ * <p>
+ * The file starts with the number of committed records. A record only counts
+ * once {@link #commit()} has updated that header, so a record that was being
+ * written when the process died is overwritten by the next append.
+ */
+final class MappedRecordFile implements Closeable {
+
+    private static final int HEADER_BYTES = Long.BYTES;
+    private static final long INITIAL_RECORDS = 4096;
+
+    private final FileChannel channel;
+    private final int recordBytes;
+    private MappedByteBuffer buffer;
+    private long capacity;
+    private long size;
+
+    MappedRecordFile(Path file, int slots) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        recordBytes = slots * Long.BYTES;
+        map(Math.max(INITIAL_RECORDS, (channel.size() - HEADER_BYTES) / recordBytes));
+        size = buffer.getLong(0);
+    }
+
+    long size() {
+        return size;
+    }
+
+    /**
+     * Makes room for one more record and returns its index. The record is
+     * written with the put methods and made durable with {@link #commit()}.
+     */
+    long append() throws IOException {
+        if (size == capacity) {
+            map(capacity * 2);
+        }
+        return size;
+    }
+
+    void commit() {
+        size++;
+        buffer.putLong(0, size);
+    }
+
+    void putLong(long index, int slot, long value) {
+        buffer.putLong(offset(index, slot), value);
+    }
+
+    void putDouble(long index, int slot, double value) {
+        buffer.putDouble(offset(index, slot), value);
+    }
+
+    long getLong(long index, int slot) {
+        return buffer.getLong(offset(index, slot));
+    }
+
+    double getDouble(long index, int slot) {
+        return buffer.getDouble(offset(index, slot));
+    }
+
+    /**
+     * Finds the first record whose first slot is at least the given value,
+     * assuming the first slot only grows.
+     */
+    long search(long value) {
+        long low = 0;
+        long high = size;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (getLong(mid, 0) < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    private void map(long records) throws IOException {
+        long bytes = HEADER_BYTES + records * recordBytes;
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IOException("Record file is full at " + capacity + " records");
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+        capacity = records;
+    }
+
+    private int offset(long index, int slot) {
+        return (int) (HEADER_BYTES + index * recordBytes + (long) slot * Long.BYTES);
+    }
+}
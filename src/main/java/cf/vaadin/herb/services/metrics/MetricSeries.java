@@ -0,0 +1,221 @@
+package cf.vaadin.herb.services.metrics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * A single time series, stored as raw points and as rollups of 10 seconds, 1
+ * minute and 1 hour. Each rollup is built from the closed buckets of the one
+ * before it.
+ * <p>
+ * Only closed buckets are stored. The open bucket of each rollup is kept in
+ * memory and rebuilt from the tail of the level before it when the series is
+ * opened, so a restart loses no points.
+ */
+final class MetricSeries implements Closeable {
+
+    static final Duration[] ROLLUPS = { Duration.ofSeconds(10), Duration.ofMinutes(1), Duration.ofHours(1) };
+    private static final String[] ROLLUP_SUFFIXES = { "10s", "1m", "1h" };
+
+    // Raw record slots
+    private static final int TIMESTAMP = 0;
+    private static final int VALUE = 1;
+    // Rollup record slots
+    private static final int MIN = 1;
+    private static final int MAX = 2;
+    private static final int SUM = 3;
+    private static final int COUNT = 4;
+
+    private final MappedRecordFile raw;
+    private final MappedRecordFile[] rollups = new MappedRecordFile[ROLLUPS.length];
+    private final Bucket[] openBuckets = new Bucket[ROLLUPS.length];
+
+    MetricSeries(Path directory, String name) throws IOException {
+        raw = new MappedRecordFile(directory.resolve(name + ".raw"), 2);
+        for (int level = 0; level < ROLLUPS.length; level++) {
+            rollups[level] = new MappedRecordFile(directory.resolve(name + "." + ROLLUP_SUFFIXES[level]), 5);
+        }
+        // From the coarsest level down, a bucket closed while rebuilding a level goes into the rebuilt one above
+        for (int level = ROLLUPS.length - 1; level >= 0; level--) {
+            reopenBucket(level);
+        }
+    }
+
+    synchronized void append(long timestamp, double value) throws IOException {
+        long index = raw.append();
+        raw.putLong(index, TIMESTAMP, timestamp);
+        raw.putDouble(index, VALUE, value);
+        raw.commit();
+        addToRollup(0, timestamp, value, value, value, 1);
+    }
+
+    /**
+     * Aggregates the values in {@code [from, to)} into at most {@code buckets}
+     * buckets, reading the coarsest level that still has at least one point per
+     * bucket.
+     */
+    synchronized Downsampled query(long from, long to, int buckets) {
+        long bucketMillis = Math.max(1, (to - from) / buckets);
+        int level = -1;
+        while (level + 1 < ROLLUPS.length && ROLLUPS[level + 1].toMillis() <= bucketMillis) {
+            level++;
+        }
+
+        Aggregate aggregate = new Aggregate(from, to, buckets);
+        if (level < 0) {
+            for (long i = raw.search(from); i < raw.size(); i++) {
+                long timestamp = raw.getLong(i, TIMESTAMP);
+                if (timestamp >= to) {
+                    break;
+                }
+                double value = raw.getDouble(i, VALUE);
+                aggregate.add(timestamp, value, value, value, 1);
+            }
+        } else {
+            MappedRecordFile rollup = rollups[level];
+            for (long i = rollup.search(from); i < rollup.size(); i++) {
+                long timestamp = rollup.getLong(i, TIMESTAMP);
+                if (timestamp >= to) {
+                    break;
+                }
+                aggregate.add(timestamp, rollup.getDouble(i, MIN), rollup.getDouble(i, MAX),
+                        rollup.getDouble(i, SUM), rollup.getLong(i, COUNT));
+            }
+            // The points of the open buckets of this level and the ones below are not in the rollup yet
+            for (int openLevel = level; openLevel >= 0; openLevel--) {
+                Bucket open = openBuckets[openLevel];
+                if (open != null && open.start >= from && open.start < to) {
+                    aggregate.add(open.start, open.min, open.max, open.sum, open.count);
+                }
+            }
+        }
+        return aggregate.result();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        raw.close();
+        for (MappedRecordFile rollup : rollups) {
+            rollup.close();
+        }
+    }
+
+    // Adds the records of the level below that are not in a closed bucket of this level yet
+    private void reopenBucket(int level) throws IOException {
+        MappedRecordFile rollup = rollups[level];
+        long closedUntil = rollup.size() == 0 ? Long.MIN_VALUE
+                : rollup.getLong(rollup.size() - 1, TIMESTAMP) + ROLLUPS[level].toMillis();
+        if (level == 0) {
+            for (long i = raw.search(closedUntil); i < raw.size(); i++) {
+                double value = raw.getDouble(i, VALUE);
+                addToRollup(0, raw.getLong(i, TIMESTAMP), value, value, value, 1);
+            }
+            return;
+        }
+        MappedRecordFile source = rollups[level - 1];
+        for (long i = source.search(closedUntil); i < source.size(); i++) {
+            addToRollup(level, source.getLong(i, TIMESTAMP), source.getDouble(i, MIN), source.getDouble(i, MAX),
+                    source.getDouble(i, SUM), source.getLong(i, COUNT));
+        }
+    }
+
+    private void addToRollup(int level, long timestamp, double min, double max, double sum, long count)
+            throws IOException {
+        long size = ROLLUPS[level].toMillis();
+        long start = timestamp - Math.floorMod(timestamp, size);
+        Bucket bucket = openBuckets[level];
+        if (bucket != null && bucket.start != start) {
+            MappedRecordFile rollup = rollups[level];
+            long index = rollup.append();
+            rollup.putLong(index, TIMESTAMP, bucket.start);
+            rollup.putDouble(index, MIN, bucket.min);
+            rollup.putDouble(index, MAX, bucket.max);
+            rollup.putDouble(index, SUM, bucket.sum);
+            rollup.putLong(index, COUNT, bucket.count);
+            rollup.commit();
+            if (level + 1 < ROLLUPS.length) {
+                addToRollup(level + 1, bucket.start, bucket.min, bucket.max, bucket.sum, bucket.count);
+            }
+            bucket = null;
+        }
+        if (bucket == null) {
+            bucket = new Bucket(start);
+            openBuckets[level] = bucket;
+        }
+        bucket.add(min, max, sum, count);
+    }
+
+    private static final class Bucket {
+        private final long start;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+        private double sum;
+        private long count;
+
+        private Bucket(long start) {
+            this.start = start;
+        }
+
+        private void add(double min, double max, double sum, long count) {
+            this.min = Math.min(this.min, min);
+            this.max = Math.max(this.max, max);
+            this.sum += sum;
+            this.count += count;
+        }
+    }
+
+    private static final class Aggregate {
+        private final long from;
+        private final long range;
+        private final double[] min;
+        private final double[] max;
+        private final double[] sum;
+        private final long[] count;
+
+        private Aggregate(long from, long to, int buckets) {
+            this.from = from;
+            this.range = Math.max(1, to - from);
+            min = new double[buckets];
+            max = new double[buckets];
+            sum = new double[buckets];
+            count = new long[buckets];
+            Arrays.fill(min, Double.POSITIVE_INFINITY);
+            Arrays.fill(max, Double.NEGATIVE_INFINITY);
+        }
+
+        private void add(long timestamp, double min, double max, double sum, long count) {
+            int bucket = (int) ((timestamp - from) * this.count.length / range);
+            this.min[bucket] = Math.min(this.min[bucket], min);
+            this.max[bucket] = Math.max(this.max[bucket], max);
+            this.sum[bucket] += sum;
+            this.count[bucket] += count;
+        }
+
+        private Downsampled result() {
+            int size = 0;
+            for (long c : count) {
+                if (c > 0) {
+                    size++;
+                }
+            }
+            long[] timestamps = new long[size];
+            double[] resultMin = new double[size];
+            double[] resultMax = new double[size];
+            double[] avg = new double[size];
+            int i = 0;
+            for (int bucket = 0; bucket < count.length; bucket++) {
+                if (count[bucket] > 0) {
+                    timestamps[i] = from + bucket * range / count.length;
+                    resultMin[i] = min[bucket];
+                    resultMax[i] = max[bucket];
+                    avg[i] = sum[bucket] / count[bucket];
+                    i++;
+                }
+            }
+            return new Downsampled(timestamps, resultMin, resultMax, avg);
+        }
+    }
+}
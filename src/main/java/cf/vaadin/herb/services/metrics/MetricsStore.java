@@ -0,0 +1,71 @@
+package cf.vaadin.herb.services.metrics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Embedded time series store for dashboard metrics.
+ * <p>
+ * Every series is kept in append-only memory-mapped files in the configured
+ * directory, one for the raw points and one per rollup level, so the history
+ * survives restarts. Range queries return the values downsampled to the
+ * requested number of buckets.
+ */
+@Service
+public class MetricsStore {
+
+    private final Path directory;
+    private final Map<String, MetricSeries> series = new ConcurrentHashMap<>();
+
+    public MetricsStore(@Value("${metrics.store.directory:${java.io.tmpdir}/more-signals/metrics}") String directory) {
+        this.directory = Path.of(directory);
+        try {
+            Files.createDirectories(this.directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void append(String name, long timestamp, double value) {
+        try {
+            series(name).append(timestamp, value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the values of a series between {@code from} (inclusive) and
+     * {@code to} (exclusive), aggregated into at most {@code buckets} buckets of
+     * equal length.
+     */
+    public Downsampled query(String name, long from, long to, int buckets) {
+        return series(name).query(from, to, buckets);
+    }
+
+    @PreDestroy
+    void close() throws IOException {
+        for (MetricSeries metricSeries : series.values()) {
+            metricSeries.close();
+        }
+    }
+
+    private MetricSeries series(String name) {
+        return series.computeIfAbsent(name, key -> {
+            try {
+                return new MetricSeries(directory, key);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+}
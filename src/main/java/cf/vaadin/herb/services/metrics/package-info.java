@@ -0,0 +1,4 @@
+@NonNullApi
+package cf.vaadin.herb.services.metrics;
+
+import org.springframework.lang.NonNullApi;
@@ -0,0 +1,58 @@
+package cf.vaadin.herb.services.replication;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Transport between nodes living in the same JVM, e.g. to run a cluster in a
+ * single process. A transport created with {@link #join()} is part of the same
+ * group as the transport it was created from. Every node delivers on its own
+ * thread, so the sender never runs the listener of another node.
+ */
+public class LoopbackTransport implements ReplicationTransport {
+
+    private final List<LoopbackTransport> group;
+    private final ExecutorService delivery = Executors.newSingleThreadExecutor(Thread.ofVirtual().factory());
+    private volatile Listener listener;
+
+    public LoopbackTransport() {
+        this(new CopyOnWriteArrayList<>());
+    }
+
+    private LoopbackTransport(List<LoopbackTransport> group) {
+        this.group = group;
+    }
+
+    /**
+     * Creates a transport for another node of this group.
+     */
+    public LoopbackTransport join() {
+        return new LoopbackTransport(group);
+    }
+
+    @Override
+    public void start(Listener listener) {
+        this.listener = listener;
+        group.add(this);
+        for (LoopbackTransport node : group) {
+            node.delivery.execute(() -> node.listener.connected());
+        }
+    }
+
+    @Override
+    public void send(ReplicationMessage message) {
+        for (LoopbackTransport node : group) {
+            if (node != this) {
+                node.delivery.execute(() -> node.listener.received(message));
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        group.remove(this);
+        delivery.shutdown();
+    }
+}
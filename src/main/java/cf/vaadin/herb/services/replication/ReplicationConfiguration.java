@@ -0,0 +1,52 @@
+package cf.vaadin.herb.services.replication;
+
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Selects the transport used to replicate shared signals with
+ * {@code replication.transport}. Without any configuration a loopback
+ * transport without other nodes is used, i.e. nothing is replicated.
+ */
+@Configuration
+class ReplicationConfiguration {
+
+    @Bean
+    @ConditionalOnProperty(name = "replication.transport", havingValue = "loopback", matchIfMissing = true)
+    ReplicationTransport loopbackTransport() {
+        return new LoopbackTransport();
+    }
+
+    /**
+     * Peers are given as a comma separated list of {@code host:port}. The
+     * transport listens on loopback unless another address is configured.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "replication.transport", havingValue = "tcp")
+    ReplicationTransport tcpTransport(@Value("${replication.tcp.bind-address:127.0.0.1}") String bindAddress,
+            @Value("${replication.tcp.port:7600}") int port, @Value("${replication.tcp.peers:}") String peers) {
+        List<InetSocketAddress> addresses = Arrays.stream(peers.split(","))
+                .map(String::strip)
+                .filter(peer -> !peer.isEmpty())
+                .map(peer -> {
+                    int colon = peer.lastIndexOf(':');
+                    return InetSocketAddress.createUnresolved(peer.substring(0, colon),
+                            Integer.parseInt(peer.substring(colon + 1)));
+                })
+                .toList();
+        try {
+            return new TcpTransport(InetAddress.getByName(bindAddress), port, addresses);
+        } catch (UnknownHostException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
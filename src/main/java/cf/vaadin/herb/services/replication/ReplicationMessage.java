@@ -0,0 +1,124 @@
+package cf.vaadin.herb.services.replication;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * What nodes send each other, written in a compact binary form. Lengths read
+ * from the wire are checked against {@link #MAX_FRAME_BYTES} before anything
+ * is allocated for them.
+ */
+public sealed interface ReplicationMessage {
+
+    byte OPERATION = 1;
+    byte SYNC_REQUEST = 2;
+
+    /** The largest payload of an operation and the largest sync request */
+    int MAX_FRAME_BYTES = 1 << 20;
+
+    /** A stream name of at least the length prefix and its sequence number */
+    int MIN_STREAM_BYTES = Short.BYTES + Long.BYTES;
+
+    void write(DataOutput out) throws IOException;
+
+    static ReplicationMessage read(DataInput in) throws IOException {
+        byte type = in.readByte();
+        return switch (type) {
+        case OPERATION -> {
+            String origin = in.readUTF();
+            String signal = in.readUTF();
+            long sequence = in.readLong();
+            int length = in.readInt();
+            if (length < 0 || length > MAX_FRAME_BYTES) {
+                throw new IOException("Operation payload of " + length + " bytes exceeds " + MAX_FRAME_BYTES);
+            }
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            yield new Operation(origin, signal, sequence, payload);
+        }
+        case SYNC_REQUEST -> {
+            String origin = in.readUTF();
+            int count = in.readInt();
+            if (count < 0 || count > MAX_FRAME_BYTES / MIN_STREAM_BYTES) {
+                throw new IOException("Sync request of " + count + " streams exceeds " + MAX_FRAME_BYTES + " bytes");
+            }
+            Map<String, Long> applied = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                applied.put(in.readUTF(), in.readLong());
+            }
+            yield new SyncRequest(origin, applied);
+        }
+        default -> throw new IOException("Unknown replication message type " + type);
+        };
+    }
+
+    /**
+     * A mutation of a shared signal made on the origin node.
+     *
+     * @param origin
+     *            the id of the node that made the mutation
+     * @param signal
+     *            the name of the mutated signal
+     * @param sequence
+     *            the number of the mutation among those of the same signal on
+     *            the same node, starting from 0
+     * @param payload
+     *            the mutation as encoded by the owner of the signal
+     */
+    record Operation(String origin, String signal, long sequence, byte[] payload) implements ReplicationMessage {
+
+        public Operation {
+            if (payload.length > MAX_FRAME_BYTES) {
+                throw new IllegalArgumentException(
+                        "Payload of " + payload.length + " bytes exceeds " + MAX_FRAME_BYTES + " bytes");
+            }
+        }
+
+        /**
+         * Identifies the stream of operations this one is ordered in.
+         */
+        String stream() {
+            return stream(signal, origin);
+        }
+
+        static String stream(String signal, String origin) {
+            return signal + "@" + origin;
+        }
+
+        @Override
+        public void write(DataOutput out) throws IOException {
+            out.writeByte(OPERATION);
+            out.writeUTF(origin);
+            out.writeUTF(signal);
+            out.writeLong(sequence);
+            out.writeInt(payload.length);
+            out.write(payload);
+        }
+    }
+
+    /**
+     * Asks the other nodes to resend the operations the sender has not
+     * applied yet.
+     *
+     * @param origin
+     *            the id of the asking node
+     * @param applied
+     *            the sequence number of the last applied operation by stream
+     */
+    record SyncRequest(String origin, Map<String, Long> applied) implements ReplicationMessage {
+
+        @Override
+        public void write(DataOutput out) throws IOException {
+            out.writeByte(SYNC_REQUEST);
+            out.writeUTF(origin);
+            out.writeInt(applied.size());
+            for (Map.Entry<String, Long> entry : applied.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeLong(entry.getValue());
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package cf.vaadin.herb.services.replication;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * What a node has to remember across restarts to replicate without
+ * duplicates: its own id and the sequence number of the last operation of
+ * every stream it has published or applied.
+ * <p>
+ * The state is a small text file, the id on the first line and one stream
+ * with its sequence number per following line. Changes are kept in memory
+ * and written when the state is {@linkplain #flush() flushed}, coalescing all
+ * changes since the last write. The file is replaced atomically, so it is
+ * either the old or the new state after a crash. Operations applied after the
+ * last write are applied once more after a crash.
+ */
+final class ReplicationState {
+
+    private final Path file;
+    private final String nodeId;
+    private final Map<String, Long> sequences = new HashMap<>();
+    private boolean dirty;
+
+    ReplicationState(Path file) {
+        this.file = file;
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            if (Files.exists(file)) {
+                List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+                nodeId = lines.getFirst();
+                for (String line : lines.subList(1, lines.size())) {
+                    int space = line.lastIndexOf(' ');
+                    sequences.put(line.substring(0, space), Long.parseLong(line.substring(space + 1)));
+                }
+            } else {
+                nodeId = UUID.randomUUID().toString();
+                save();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    String nodeId() {
+        return nodeId;
+    }
+
+    /**
+     * The sequence number of the last operation of the stream, {@code -1} if
+     * there was none.
+     */
+    long sequence(String stream) {
+        return sequences.getOrDefault(stream, -1L);
+    }
+
+    Map<String, Long> sequences() {
+        return Map.copyOf(sequences);
+    }
+
+    void update(String stream, long sequence) {
+        sequences.put(stream, sequence);
+        dirty = true;
+    }
+
+    /**
+     * Writes the state if it changed since it was last written.
+     */
+    void flush() {
+        if (dirty) {
+            save();
+            dirty = false;
+        }
+    }
+
+    private void save() {
+        List<String> lines = new ArrayList<>(sequences.size() + 1);
+        lines.add(nodeId);
+        sequences.forEach((stream, sequence) -> lines.add(stream + " " + sequence));
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.write(temporary, lines, StandardCharsets.UTF_8);
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package cf.vaadin.herb.services.replication;
+
+import java.io.Closeable;
+
+/**
+ * Carries replication messages between the nodes of a cluster. Messages sent
+ * over the same transport are delivered to every other node in the order they
+ * were sent, a node does not receive its own messages.
+ */
+public interface ReplicationTransport extends Closeable {
+
+    /**
+     * Receives what the transport delivers. Calls are made from one thread at
+     * a time per connection.
+     */
+    interface Listener {
+
+        void received(ReplicationMessage message);
+
+        /**
+         * Called when a connection to another node has been established,
+         * including when a node rejoins after a failure.
+         */
+        void connected();
+    }
+
+    void start(Listener listener);
+
+    void send(ReplicationMessage message);
+
+    @Override
+    void close();
+}
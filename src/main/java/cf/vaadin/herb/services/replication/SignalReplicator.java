@@ -0,0 +1,242 @@
+package cf.vaadin.herb.services.replication;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import cf.vaadin.herb.services.replication.ReplicationMessage.Operation;
+import cf.vaadin.herb.services.replication.ReplicationMessage.SyncRequest;
+
+/**
+ * Replicates mutations of shared signals to the other nodes of the cluster.
+ * <p>
+ * The owner of a signal registers a handler under the name of the signal,
+ * publishes every local mutation as an encoded payload and applies the
+ * payloads the handler receives from other nodes. Operations are numbered per
+ * signal and node and applied in that order, an operation that arrives early
+ * waits for the ones before it. Every node keeps the latest operations of each
+ * signal, so a node that joins or rejoins asks the others for what it missed
+ * and catches up. Operations that are received twice are ignored.
+ * <p>
+ * The id of the node and the last sequence number of every stream are kept in
+ * a {@link ReplicationState} in the configured directory. A restarted node is
+ * the same node to the others, it continues its own numbering and is only sent
+ * the operations it has not applied before the restart. The state is written
+ * once per flush interval if it changed, before every sync request and on
+ * shutdown. A node that crashed in between learns from the sync requests of
+ * the others how far its own numbering got.
+ * <p>
+ * A stream only advances past an operation once its handler applied it. An
+ * operation whose handler failed is requested again with the next sync, the
+ * operations after it wait until it was applied.
+ * <p>
+ * Messages are handed to the transport by a single sending thread in the order
+ * they were queued, never while the lock of the replicator is held, so a slow
+ * peer delays neither publishers nor the processing of received messages.
+ */
+@Service
+public class SignalReplicator implements ReplicationTransport.Listener {
+
+    private static final Logger log = LoggerFactory.getLogger(SignalReplicator.class);
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 2;
+
+    private final String nodeId;
+    private final ReplicationTransport transport;
+    private final ReplicationState state;
+    private final int retained;
+
+    private final ExecutorService sender = Executors
+            .newSingleThreadExecutor(Thread.ofVirtual().name("replication-sender").factory());
+    private final ScheduledExecutorService flusher = Executors
+            .newSingleThreadScheduledExecutor(Thread.ofVirtual().name("replication-state").factory());
+    private final Duration flushInterval;
+
+    private final Map<String, Consumer<byte[]>> handlers = new HashMap<>();
+    private final Map<String, TreeMap<Long, Operation>> early = new HashMap<>();
+    private final Map<String, Deque<Operation>> recent = new HashMap<>();
+
+    public SignalReplicator(ReplicationTransport transport,
+            @Value("${replication.retained-operations:1000}") int retained,
+            @Value("${replication.directory:${java.io.tmpdir}/more-signals/replication}") String directory,
+            @Value("${replication.state-flush-interval:1s}") Duration flushInterval) {
+        this.transport = transport;
+        this.retained = retained;
+        this.flushInterval = flushInterval;
+        this.state = new ReplicationState(Path.of(directory, "state"));
+        this.nodeId = state.nodeId();
+    }
+
+    @PostConstruct
+    void start() {
+        flusher.scheduleWithFixedDelay(this::flush, flushInterval.toMillis(), flushInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+        transport.start(this);
+    }
+
+    /**
+     * Registers the handler applying the mutations of a signal made on other
+     * nodes. Handlers are called with the lock of this replicator held, one
+     * operation at a time.
+     */
+    public synchronized void register(String signal, Consumer<byte[]> handler) {
+        handlers.put(signal, handler);
+    }
+
+    /**
+     * Sends a mutation that was applied locally to the other nodes.
+     */
+    public synchronized void publish(String signal, byte[] payload) {
+        long sequence = state.sequence(Operation.stream(signal, nodeId)) + 1;
+        Operation operation = new Operation(nodeId, signal, sequence, payload);
+        // The own operations count as applied, a resent one is ignored like any other duplicate
+        state.update(operation.stream(), sequence);
+        retain(operation);
+        send(operation);
+    }
+
+    @Override
+    public synchronized void received(ReplicationMessage message) {
+        switch (message) {
+        case Operation operation -> receive(operation);
+        case SyncRequest request -> resend(request);
+        }
+    }
+
+    @Override
+    public synchronized void connected() {
+        sync();
+    }
+
+    @PreDestroy
+    void close() throws InterruptedException {
+        flusher.shutdownNow();
+        // Lets the queued messages go out before the connections are closed
+        sender.shutdown();
+        sender.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        transport.close();
+        flush();
+    }
+
+    private synchronized void flush() {
+        try {
+            state.flush();
+        } catch (RuntimeException e) {
+            // An exception would cancel the scheduled flushes for good
+            log.warn("Saving the replication state failed", e);
+        }
+    }
+
+    // The state is written first, what the others resend is not applied again after a crash
+    private void sync() {
+        flush();
+        send(new SyncRequest(nodeId, state.sequences()));
+    }
+
+    private void send(ReplicationMessage message) {
+        try {
+            sender.execute(() -> transport.send(message));
+        } catch (RejectedExecutionException e) {
+            log.debug("Not sending {}, the replicator is closed", message.getClass().getSimpleName());
+        }
+    }
+
+    private void receive(Operation operation) {
+        String stream = operation.stream();
+        long next = state.sequence(stream) + 1;
+        if (operation.sequence() < next) {
+            return;
+        }
+        if (operation.sequence() > next) {
+            TreeMap<Long, Operation> waiting = early.computeIfAbsent(stream, key -> new TreeMap<>());
+            if (waiting.isEmpty()) {
+                // Ask for the missing operations once per gap
+                sync();
+            }
+            waiting.put(operation.sequence(), operation);
+            if (waiting.size() <= retained) {
+                return;
+            }
+            // No node retains the missing operations anymore, continue after the gap
+            log.warn("Skipping operations {} to {} of {}", next, waiting.firstKey() - 1, stream);
+            operation = waiting.pollFirstEntry().getValue();
+        }
+        if (!apply(operation)) {
+            return;
+        }
+        TreeMap<Long, Operation> waiting = early.get(stream);
+        while (waiting != null && !waiting.isEmpty() && waiting.firstKey() <= state.sequence(stream) + 1) {
+            Operation first = waiting.pollFirstEntry().getValue();
+            if (first.sequence() == state.sequence(stream) + 1 && !apply(first)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Hands the operation to its handler and returns whether the stream
+     * advanced past it.
+     */
+    private boolean apply(Operation operation) {
+        Consumer<byte[]> handler = handlers.get(operation.signal());
+        if (handler == null) {
+            log.debug("No handler for replicated signal {}", operation.signal());
+        } else {
+            try {
+                handler.accept(operation.payload());
+            } catch (RuntimeException e) {
+                // Not counted as applied, the next sync asks for it again
+                log.warn("Applying replicated operation on {} failed", operation.signal(), e);
+                return false;
+            }
+        }
+        retain(operation);
+        state.update(operation.stream(), operation.sequence());
+        return true;
+    }
+
+    // Sends everything the requesting node has not applied, including operations relayed from third nodes
+    private void resend(SyncRequest request) {
+        // The own numbering continues after what the others applied, also if it was not written before a crash
+        for (String signal : handlers.keySet()) {
+            String own = Operation.stream(signal, nodeId);
+            long applied = request.applied().getOrDefault(own, -1L);
+            if (applied > state.sequence(own)) {
+                state.update(own, applied);
+            }
+        }
+        for (Deque<Operation> operations : recent.values()) {
+            for (Operation operation : operations) {
+                if (!operation.origin().equals(request.origin())
+                        && operation.sequence() > request.applied().getOrDefault(operation.stream(), -1L)) {
+                    send(operation);
+                }
+            }
+        }
+    }
+
+    private void retain(Operation operation) {
+        Deque<Operation> operations = recent.computeIfAbsent(operation.signal(), key -> new ArrayDeque<>());
+        operations.addLast(operation);
+        if (operations.size() > retained) {
+            operations.removeFirst();
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package cf.vaadin.herb.services.replication;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Transport over plain TCP connections.
+ * <p>
+ * Every node listens on its own port and keeps a connection to each
+ * configured peer, reconnecting while the peer is down. Messages are sent to
+ * all open connections, incoming and outgoing, so two nodes that both list
+ * each other get every message twice, which the receiver has to tolerate.
+ * Nodes on one machine only need different ports.
+ * <p>
+ * Connections are not authenticated, anyone reaching the port can add to the
+ * replicated signals. The transport therefore listens on the configured
+ * address only, loopback unless set otherwise, which has to be reachable by
+ * the peers but not by anyone else.
+ * <p>
+ * Every connection has its own queue of outgoing messages, written by its own
+ * thread, so sending never waits for a peer. A peer that falls too far behind
+ * is disconnected, it catches up with a sync request once it reconnects.
+ */
+public class TcpTransport implements ReplicationTransport {
+
+    private static final Logger log = LoggerFactory.getLogger(TcpTransport.class);
+    private static final long RECONNECT_DELAY_MILLIS = 2000;
+    private static final int MAX_QUEUED_MESSAGES = 10_000;
+
+    private final InetAddress bindAddress;
+    private final int port;
+    private final List<InetSocketAddress> peers;
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+    private final ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor();
+    private volatile boolean closed;
+    private ServerSocket serverSocket;
+    private Listener listener;
+
+    public TcpTransport(InetAddress bindAddress, int port, List<InetSocketAddress> peers) {
+        this.bindAddress = bindAddress;
+        this.port = port;
+        this.peers = List.copyOf(peers);
+    }
+
+    @Override
+    public void start(Listener listener) {
+        this.listener = listener;
+        try {
+            serverSocket = new ServerSocket(port, 0, bindAddress);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        threads.execute(this::accept);
+        for (InetSocketAddress peer : peers) {
+            threads.execute(() -> connect(peer));
+        }
+    }
+
+    @Override
+    public void send(ReplicationMessage message) {
+        for (Connection connection : connections) {
+            connection.send(message);
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            log.debug("Closing the replication server socket failed", e);
+        }
+        connections.forEach(Connection::close);
+        threads.shutdownNow();
+    }
+
+    private void accept() {
+        while (!closed) {
+            try {
+                Socket socket = serverSocket.accept();
+                threads.execute(() -> serve(socket));
+            } catch (IOException e) {
+                if (!closed) {
+                    log.warn("Accepting a replication connection failed", e);
+                }
+            }
+        }
+    }
+
+    private void connect(InetSocketAddress peer) {
+        while (!closed) {
+            try {
+                serve(new Socket(peer.getHostString(), peer.getPort()));
+            } catch (IOException e) {
+                log.debug("Replication peer {} is not reachable", peer, e);
+            }
+            try {
+                TimeUnit.MILLISECONDS.sleep(RECONNECT_DELAY_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    // Reads from the connection until it is closed
+    private void serve(Socket socket) {
+        Connection connection;
+        try {
+            connection = new Connection(socket);
+        } catch (IOException e) {
+            log.debug("Opening replication connection to {} failed", socket.getRemoteSocketAddress(), e);
+            return;
+        }
+        connections.add(connection);
+        threads.execute(connection::write);
+        try {
+            listener.connected();
+            while (!closed) {
+                listener.received(ReplicationMessage.read(connection.in));
+            }
+        } catch (EOFException e) {
+            log.debug("Replication connection to {} closed", socket.getRemoteSocketAddress());
+        } catch (IOException e) {
+            if (!closed) {
+                log.info("Replication connection to {} lost", socket.getRemoteSocketAddress(), e);
+            }
+        } finally {
+            connections.remove(connection);
+            connection.close();
+        }
+    }
+
+    private static final class Connection {
+
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+        private final BlockingQueue<ReplicationMessage> outgoing = new LinkedBlockingQueue<>(MAX_QUEUED_MESSAGES);
+
+        Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            socket.setTcpNoDelay(true);
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        void send(ReplicationMessage message) {
+            if (!outgoing.offer(message)) {
+                log.warn("Replication peer {} is not keeping up, disconnecting it", socket.getRemoteSocketAddress());
+                close();
+            }
+        }
+
+        // Writes the queued messages until the connection is closed, flushing whenever the queue runs empty
+        void write() {
+            try {
+                while (!socket.isClosed()) {
+                    // Wakes up now and then to notice a connection closed by the reading side
+                    ReplicationMessage message = outgoing.poll(1, TimeUnit.SECONDS);
+                    if (message != null) {
+                        message.write(out);
+                    }
+                    if (outgoing.isEmpty()) {
+                        out.flush();
+                    }
+                }
+            } catch (IOException e) {
+                // The reading side notices the broken connection and drops it
+                log.debug("Sending to {} failed", socket.getRemoteSocketAddress(), e);
+                close();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                log.debug("Closing replication connection failed", e);
+            }
+        }
+    }
+}
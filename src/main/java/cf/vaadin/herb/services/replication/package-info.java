@@ -0,0 +1,4 @@
+@NonNullApi
+package cf.vaadin.herb.services.replication;
+
+import org.springframework.lang.NonNullApi;
@@ -0,0 +1,105 @@
+package cf.vaadin.herb.signals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import com.vaadin.flow.component.charts.Chart;
+import com.vaadin.flow.component.charts.model.DataSeries;
+import com.vaadin.flow.component.charts.model.DataSeriesItem;
+import com.vaadin.flow.shared.Registration;
+import com.vaadin.signals.Signal;
+
+/**
+ * Bindings that keep chart series in sync with signals by sending only the
+ * changed points to the client instead of redrawing the whole chart.
+ */
+public final class ChartSignals {
+
+    private ChartSignals() {
+    }
+
+    /**
+     * Binds a series to a pair of windows holding the x and y values of the
+     * points. Values appended to the windows are added to the end of the series,
+     * shifting the oldest point out once the series is full. The whole series is
+     * only resent when binding and if the chart has fallen behind by more than a
+     * window.
+     */
+    public static Registration bindWindow(Chart chart, DataSeries series, NumberWindowSignal xWindow,
+            NumberWindowSignal yWindow) {
+        return bindWindow(EffectBinder.IMMEDIATE, chart, series, xWindow, yWindow);
+    }
+
+    /**
+     * Like {@link #bindWindow(Chart, DataSeries, NumberWindowSignal, NumberWindowSignal)}
+     * with the effect registered through the given binder.
+     */
+    public static Registration bindWindow(EffectBinder binder, Chart chart, DataSeries series,
+            NumberWindowSignal xWindow, NumberWindowSignal yWindow) {
+        int capacity = Math.min(xWindow.capacity(), yWindow.capacity());
+        long[] applied = { -1 };
+        return binder.effect(chart, () -> {
+            NumberWindowSignal.Window x = xWindow.value();
+            NumberWindowSignal.Window y = yWindow.value();
+            // The windows are appended one after another, only points present in both are complete
+            long available = Math.min(x.appendCount(), y.appendCount());
+            if (available == applied[0]) {
+                return;
+            }
+            long first = Math.max(x.appendCount() - x.size(), y.appendCount() - y.size());
+
+            if (applied[0] < 0 || available - applied[0] > capacity) {
+                List<DataSeriesItem> items = new ArrayList<>();
+                for (long point = first; point < available; point++) {
+                    items.add(item(x, y, point));
+                }
+                series.setData(items);
+                chart.drawChart();
+            } else {
+                for (long point = Math.max(applied[0], first); point < available; point++) {
+                    series.add(item(x, y, point), true, series.size() >= capacity);
+                }
+            }
+            applied[0] = available;
+        });
+    }
+
+    /**
+     * Binds the y value of a single point to a signal. Changes are sent as an
+     * update of that point only.
+     */
+    public static Registration bindY(Chart chart, DataSeries series, int index, Signal<? extends Number> signal) {
+        return bindY(EffectBinder.IMMEDIATE, chart, series, index, signal);
+    }
+
+    /**
+     * Like {@link #bindY(Chart, DataSeries, int, Signal)} with the effect
+     * registered through the given binder.
+     */
+    public static Registration bindY(EffectBinder binder, Chart chart, DataSeries series, int index,
+            Signal<? extends Number> signal) {
+        boolean[] rendered = { false };
+        return binder.effect(chart, () -> {
+            DataSeriesItem item = series.get(index);
+            Number value = signal.value();
+            if (rendered[0] && Objects.equals(item.getY(), value)) {
+                return;
+            }
+            item.setY(value);
+            // The initial value is part of the configuration rendered on attach
+            if (rendered[0]) {
+                series.update(item);
+            }
+            rendered[0] = true;
+        });
+    }
+
+    private static DataSeriesItem item(NumberWindowSignal.Window x, NumberWindowSignal.Window y, long point) {
+        return new DataSeriesItem(x.get(index(x, point)), y.get(index(y, point)));
+    }
+
+    private static int index(NumberWindowSignal.Window window, long point) {
+        return (int) (point - (window.appendCount() - window.size()));
+    }
+}
@@ -0,0 +1,60 @@
+package cf.vaadin.herb.signals;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import com.vaadin.flow.component.Component;
+import com.vaadin.flow.component.HasComponents;
+import com.vaadin.signals.ValueSignal;
+
+/**
+ * Keeps the children of a container in sync with a list of entry signals,
+ * creating one child per entry and reusing it for as long as the entry is in
+ * the list.
+ */
+class ChildBinding<T> implements Serializable {
+
+    private final HasComponents parent;
+    private final Function<ValueSignal<T>, ? extends Component> factory;
+    private final List<ValueSignal<T>> entries = new ArrayList<>();
+    private final Map<ValueSignal<T>, Component> children = new HashMap<>();
+
+    ChildBinding(HasComponents parent, Function<ValueSignal<T>, ? extends Component> factory) {
+        this.parent = parent;
+        this.factory = factory;
+    }
+
+    void update(List<ValueSignal<T>> newEntries) {
+        Set<ValueSignal<T>> retained = new HashSet<>(newEntries);
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            ValueSignal<T> entry = entries.get(i);
+            if (!retained.contains(entry)) {
+                parent.remove(children.remove(entry));
+                entries.remove(i);
+            }
+        }
+
+        for (int i = 0; i < newEntries.size(); i++) {
+            ValueSignal<T> entry = newEntries.get(i);
+            if (i < entries.size() && entries.get(i).equals(entry)) {
+                continue;
+            }
+            Component child = children.get(entry);
+            if (child == null) {
+                child = factory.apply(entry);
+                children.put(entry, child);
+            } else {
+                // Moved, it is inserted again at its new position
+                entries.remove(entry);
+            }
+            parent.addComponentAtIndex(i, child);
+            entries.add(i, entry);
+        }
+    }
+}
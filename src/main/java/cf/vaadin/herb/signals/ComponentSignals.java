@@ -0,0 +1,44 @@
+package cf.vaadin.herb.signals;
+
+import java.util.List;
+import java.util.function.Function;
+
+import com.vaadin.flow.component.Component;
+import com.vaadin.flow.component.HasComponents;
+import com.vaadin.flow.shared.Registration;
+import com.vaadin.signals.Signal;
+import com.vaadin.signals.ValueSignal;
+
+/**
+ * Bindings between component containers and list signals.
+ */
+public final class ComponentSignals {
+
+    private ComponentSignals() {
+    }
+
+    /**
+     * Binds the children of a container to the entries of a list signal, e.g. a
+     * {@code ListSignal}.
+     * <p>
+     * The factory creates one child per entry, which is reused for as long as
+     * the entry is in the list, so it should bind to the entry signal if the
+     * value of the entry can change. An insert or a removal in the list becomes
+     * a single insert or removal of a child, a move of an entry moves its child.
+     * The container should not have any other children.
+     */
+    public static <T, P extends Component & HasComponents> Registration bindChildren(P parent,
+            Signal<List<ValueSignal<T>>> list, Function<ValueSignal<T>, ? extends Component> factory) {
+        return bindChildren(EffectBinder.IMMEDIATE, parent, list, factory);
+    }
+
+    /**
+     * Like {@link #bindChildren(Component, Signal, Function)} with the effect
+     * registered through the given binder.
+     */
+    public static <T, P extends Component & HasComponents> Registration bindChildren(EffectBinder binder,
+            P parent, Signal<List<ValueSignal<T>>> list, Function<ValueSignal<T>, ? extends Component> factory) {
+        ChildBinding<T> binding = new ChildBinding<>(parent, factory);
+        return binder.effect(parent, () -> binding.update(list.value()));
+    }
+}
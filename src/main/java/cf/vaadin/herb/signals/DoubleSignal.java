@@ -0,0 +1,61 @@
+package cf.vaadin.herb.signals;
+
+import com.vaadin.signals.NumberSignal;
+
+/**
+ * A signal holding a single {@code double} without boxing it.
+ * <p>
+ * Writing the value the signal already has is a no-op that neither allocates
+ * nor notifies dependents. Other writes notify through a version signal, a
+ * {@link NumberSignal} that is incremented once per write. That increment
+ * still boxes the new version into a {@code Double}, like every write of a
+ * {@code NumberSignal}, so a changing value costs one small allocation per
+ * write instead of none. Reading never allocates.
+ */
+public class DoubleSignal {
+
+    private final NumberSignal version = new NumberSignal();
+    private final String name;
+    private volatile double value;
+
+    public DoubleSignal(double initialValue) {
+        this(null, initialValue);
+    }
+
+    /**
+     * Creates a signal with a name that identifies its writes in the
+     * {@link SignalInstrumentation}.
+     */
+    public DoubleSignal(String name, double initialValue) {
+        this.name = name;
+        value = initialValue;
+    }
+
+    /**
+     * Reads the value and registers this signal as a dependency of the running
+     * effect or computed signal.
+     */
+    public double value() {
+        version.value();
+        return value;
+    }
+
+    /**
+     * Reads the value without registering a dependency.
+     */
+    public double peek() {
+        return value;
+    }
+
+    public void value(double newValue) {
+        synchronized (version) {
+            if (Double.compare(value, newValue) == 0) {
+                return;
+            }
+            value = newValue;
+        }
+        SignalBatch.recordWrite();
+        SignalInstrumentation.recordWrite(name);
+        version.incrementBy(1);
+    }
+}
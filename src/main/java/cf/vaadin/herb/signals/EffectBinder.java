@@ -0,0 +1,48 @@
+package cf.vaadin.herb.signals;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+import com.vaadin.flow.component.Component;
+import com.vaadin.flow.component.ComponentEffect;
+import com.vaadin.flow.function.SerializableConsumer;
+import com.vaadin.flow.function.SerializableRunnable;
+import com.vaadin.flow.function.SerializableSupplier;
+import com.vaadin.flow.shared.Registration;
+
+/**
+ * Registers effects owned by a component. Bindings take one so that the caller
+ * decides when their effects run.
+ */
+@FunctionalInterface
+public interface EffectBinder extends Serializable {
+
+    /**
+     * Runs effects whenever a signal they depend on changes.
+     */
+    EffectBinder IMMEDIATE = (owner, action) -> SignalInstrumentation.effect(ComponentEffect::effect, owner,
+            action);
+
+    Registration effect(Component owner, SerializableRunnable action);
+
+    /**
+     * Registers an effect that only depends on a part of the signals it reads.
+     * The selector picks that part, e.g. one field of a signal value, and the
+     * action only runs when the selected value is not equal to the one it
+     * last ran with.
+     */
+    default <S> Registration select(Component owner, SerializableSupplier<S> selector,
+            SerializableConsumer<S> action) {
+        Object[] selected = { null };
+        boolean[] ran = { false };
+        return effect(owner, () -> {
+            S value = selector.get();
+            if (ran[0] && Objects.equals(selected[0], value)) {
+                return;
+            }
+            selected[0] = value;
+            ran[0] = true;
+            action.accept(value);
+        });
+    }
+}
@@ -0,0 +1,96 @@
+package cf.vaadin.herb.signals;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import com.vaadin.flow.component.grid.Grid;
+import com.vaadin.flow.data.provider.ListDataProvider;
+import com.vaadin.flow.function.SerializableFunction;
+import com.vaadin.flow.shared.Registration;
+import com.vaadin.signals.ListSignal;
+import com.vaadin.signals.ValueSignal;
+
+/**
+ * Bindings between grids and list signals.
+ */
+public final class GridSignals {
+
+    private GridSignals() {
+    }
+
+    /**
+     * Binds the rows of a grid to the entries of a list signal.
+     * <p>
+     * Each row is the {@link ValueSignal} of an entry, so renderers can bind to
+     * it and update their cells when the entry value changes without involving
+     * the data provider. Rows are identified by the key of their value, which
+     * has to stay stable for the lifetime of the entry. A row whose entry signal
+     * was replaced under the same key is refreshed on its own.
+     * <p>
+     * Inserts, removals and moves are applied to the backing list by key and
+     * followed by one refresh of the data provider per change of the list. An
+     * in-memory data provider has no notification for a single inserted or
+     * removed row, so the grid fetches the rows in view again for that refresh.
+     */
+    public static <T> Registration bindItems(Grid<ValueSignal<T>> grid, ListSignal<T> list,
+            SerializableFunction<T, ?> keyFunction) {
+        return bindItems(EffectBinder.IMMEDIATE, grid, list, keyFunction);
+    }
+
+    /**
+     * Like {@link #bindItems(Grid, ListSignal, SerializableFunction)} with the
+     * effect registered through the given binder.
+     */
+    public static <T> Registration bindItems(EffectBinder binder, Grid<ValueSignal<T>> grid, ListSignal<T> list,
+            SerializableFunction<T, ?> keyFunction) {
+        List<ValueSignal<T>> rows = new ArrayList<>();
+        ListDataProvider<ValueSignal<T>> dataProvider = new ListDataProvider<>(rows) {
+            @Override
+            public Object getId(ValueSignal<T> item) {
+                return keyFunction.apply(item.peek());
+            }
+        };
+        grid.setItems(dataProvider);
+
+        return binder.effect(grid, () -> update(list.value(), rows, dataProvider));
+    }
+
+    private static <T> void update(List<ValueSignal<T>> entries, List<ValueSignal<T>> rows,
+            ListDataProvider<ValueSignal<T>> dataProvider) {
+        Set<Object> keys = new HashSet<>();
+        for (ValueSignal<T> entry : entries) {
+            keys.add(dataProvider.getId(entry));
+        }
+        boolean structural = rows.removeIf(row -> !keys.contains(dataProvider.getId(row)));
+        List<ValueSignal<T>> replaced = new ArrayList<>();
+        // The rows before index i match the entries, every step makes the row at i match as well
+        for (int i = 0; i < entries.size(); i++) {
+            ValueSignal<T> entry = entries.get(i);
+            Object key = dataProvider.getId(entry);
+            if (i < rows.size() && Objects.equals(dataProvider.getId(rows.get(i)), key)) {
+                if (!rows.get(i).equals(entry)) {
+                    rows.set(i, entry);
+                    replaced.add(entry);
+                }
+                continue;
+            }
+            // A moved entry is taken out further down, a new one is only inserted
+            for (int j = i + 1; j < rows.size(); j++) {
+                if (Objects.equals(dataProvider.getId(rows.get(j)), key)) {
+                    rows.remove(j);
+                    break;
+                }
+            }
+            rows.add(i, entry);
+            structural = true;
+        }
+        if (structural) {
+            dataProvider.refreshAll();
+        } else {
+            replaced.forEach(dataProvider::refreshItem);
+        }
+    }
+}
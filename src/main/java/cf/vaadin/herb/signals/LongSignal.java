@@ -0,0 +1,73 @@
+package cf.vaadin.herb.signals;
+
+import com.vaadin.signals.NumberSignal;
+
+/**
+ * A signal holding a single {@code long} without boxing it.
+ * <p>
+ * Writing the value the signal already has is a no-op that neither allocates
+ * nor notifies dependents. Other writes notify through a version signal, a
+ * {@link NumberSignal} that is incremented once per write. That increment
+ * still boxes the new version into a {@code Double}, like every write of a
+ * {@code NumberSignal}, so a changing value costs one small allocation per
+ * write instead of none. Reading never allocates.
+ */
+public class LongSignal {
+
+    private final NumberSignal version = new NumberSignal();
+    private final String name;
+    private volatile long value;
+
+    public LongSignal(long initialValue) {
+        this(null, initialValue);
+    }
+
+    /**
+     * Creates a signal with a name that identifies its writes in the
+     * {@link SignalInstrumentation}.
+     */
+    public LongSignal(String name, long initialValue) {
+        this.name = name;
+        value = initialValue;
+    }
+
+    /**
+     * Reads the value and registers this signal as a dependency of the running
+     * effect or computed signal.
+     */
+    public long value() {
+        version.value();
+        return value;
+    }
+
+    /**
+     * Reads the value without registering a dependency.
+     */
+    public long peek() {
+        return value;
+    }
+
+    public void value(long newValue) {
+        synchronized (version) {
+            if (value == newValue) {
+                return;
+            }
+            value = newValue;
+        }
+        SignalBatch.recordWrite();
+        SignalInstrumentation.recordWrite(name);
+        version.incrementBy(1);
+    }
+
+    public void incrementBy(long delta) {
+        synchronized (version) {
+            if (delta == 0) {
+                return;
+            }
+            value += delta;
+        }
+        SignalBatch.recordWrite();
+        SignalInstrumentation.recordWrite(name);
+        version.incrementBy(1);
+    }
+}
@@ -0,0 +1,130 @@
+package cf.vaadin.herb.signals;
+
+import java.util.Arrays;
+
+import com.vaadin.signals.NumberSignal;
+
+/**
+ * A sliding window over the latest numbers appended to it, with a fixed
+ * capacity.
+ * <p>
+ * The values are kept in a primitive ring buffer, appending a value evicts the
+ * oldest one in the same step. Dependents are notified once per
+ * {@link #append(double)} through a single version signal, no signal is created
+ * for the individual points. The snapshot of the window is only copied out of
+ * the buffer on the first read after an append and then shared by all readers
+ * until the next one.
+ */
+public class NumberWindowSignal {
+
+    private final double[] buffer;
+    private final NumberSignal version = new NumberSignal();
+    private final String name;
+    private long appendCount;
+    private Window snapshot;
+
+    public NumberWindowSignal(int capacity) {
+        this(null, capacity);
+    }
+
+    /**
+     * Creates a window with a name that identifies its appends in the
+     * {@link SignalInstrumentation}.
+     */
+    public NumberWindowSignal(String name, int capacity) {
+        this.name = name;
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive, was " + capacity);
+        }
+        buffer = new double[capacity];
+    }
+
+    /**
+     * Appends a value, evicting the oldest one if the window is full.
+     */
+    public void append(double value) {
+        synchronized (buffer) {
+            buffer[(int) (appendCount % buffer.length)] = value;
+            appendCount++;
+            snapshot = null;
+        }
+        SignalBatch.recordWrite();
+        SignalInstrumentation.recordWrite(name);
+        version.incrementBy(1);
+    }
+
+    /**
+     * Reads the current window and registers it as a dependency of the running
+     * effect or computed signal.
+     */
+    public Window value() {
+        version.value();
+        return peek();
+    }
+
+    /**
+     * Reads the current window without registering a dependency.
+     */
+    public Window peek() {
+        synchronized (buffer) {
+            if (snapshot == null) {
+                snapshot = copy();
+            }
+            return snapshot;
+        }
+    }
+
+    public int capacity() {
+        return buffer.length;
+    }
+
+    private Window copy() {
+        int size = (int) Math.min(appendCount, buffer.length);
+        double[] values = new double[size];
+        int start = (int) ((appendCount - size) % buffer.length);
+        int firstPart = Math.min(size, buffer.length - start);
+        System.arraycopy(buffer, start, values, 0, firstPart);
+        System.arraycopy(buffer, 0, values, firstPart, size - firstPart);
+        return new Window(appendCount, values);
+    }
+
+    /**
+     * Immutable snapshot of a window, oldest value first. The values array is
+     * shared between readers and must not be modified.
+     *
+     * @param appendCount
+     *            the total number of values appended when the snapshot was taken
+     * @param values
+     *            the values still in the window
+     */
+    public record Window(long appendCount, double[] values) {
+
+        public int size() {
+            return values.length;
+        }
+
+        public double get(int index) {
+            return values[index];
+        }
+
+        public double latest() {
+            return values[values.length - 1];
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Window other && appendCount == other.appendCount
+                    && Arrays.equals(values, other.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Long.hashCode(appendCount) + Arrays.hashCode(values);
+        }
+
+        @Override
+        public String toString() {
+            return "Window[appendCount=" + appendCount + ", values=" + Arrays.toString(values) + "]";
+        }
+    }
+}
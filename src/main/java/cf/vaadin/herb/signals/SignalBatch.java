@@ -0,0 +1,99 @@
+package cf.vaadin.herb.signals;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiPredicate;
+
+import com.vaadin.signals.Signal;
+import com.vaadin.signals.ValueSignal;
+
+/**
+ * Groups signal writes so that they are committed together.
+ * <p>
+ * Writes made inside {@link #run(Runnable)} are applied as one transaction.
+ * Dependents are notified when the block commits, so an effect that depends on
+ * several of the written signals runs once for the whole block instead of once
+ * per write. Nested batches join the outermost one.
+ * <p>
+ * Writes through {@link #set(ValueSignal, Object)} are skipped if the signal
+ * already holds an equal value, so dependents are not notified at all for a
+ * value that did not change.
+ */
+public final class SignalBatch {
+
+    private static final ThreadLocal<int[]> currentWrites = new ThreadLocal<>();
+
+    private static final LongAdder batches = new LongAdder();
+    private static final LongAdder writes = new LongAdder();
+    private static final LongAdder suppressedWrites = new LongAdder();
+
+    private SignalBatch() {
+    }
+
+    /**
+     * Runs the given block in a batch.
+     */
+    public static void run(Runnable block) {
+        if (currentWrites.get() != null) {
+            block.run();
+            return;
+        }
+        int[] count = new int[1];
+        currentWrites.set(count);
+        try {
+            Signal.runInTransaction(block);
+        } finally {
+            currentWrites.remove();
+        }
+        batches.increment();
+    }
+
+    /**
+     * Writes a value unless it is equal to the current one, and counts the
+     * write if it is part of a batch.
+     */
+    public static <T> void set(ValueSignal<T> signal, T value) {
+        set(signal, value, Objects::equals);
+    }
+
+    /**
+     * Like {@link #set(ValueSignal, Object)} with the given test of whether
+     * the new value is the same as the current one, e.g. comparing a version
+     * field only.
+     */
+    public static <T> void set(ValueSignal<T> signal, T value, BiPredicate<? super T, ? super T> same) {
+        if (same.test(signal.peek(), value)) {
+            suppressedWrites.increment();
+            return;
+        }
+        recordWrite();
+        SignalInstrumentation.recordWrite(SignalInstrumentation.VALUE_SIGNAL_WRITES);
+        signal.value(value);
+    }
+
+    /**
+     * Counts a write made by a signal type that is not a {@link ValueSignal}.
+     */
+    static void recordWrite() {
+        int[] count = currentWrites.get();
+        if (count != null) {
+            count[0]++;
+            writes.increment();
+        }
+    }
+
+    public static long batches() {
+        return batches.sum();
+    }
+
+    public static long writes() {
+        return writes.sum();
+    }
+
+    /**
+     * The number of writes skipped because the signal already held the value.
+     */
+    public static long suppressedWrites() {
+        return suppressedWrites.sum();
+    }
+}
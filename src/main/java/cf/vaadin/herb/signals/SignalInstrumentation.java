@@ -0,0 +1,189 @@
+package cf.vaadin.herb.signals;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.vaadin.flow.component.Component;
+import com.vaadin.flow.function.SerializableRunnable;
+import com.vaadin.flow.router.Route;
+import com.vaadin.flow.shared.Registration;
+import com.vaadin.signals.ValueSignal;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Opt-in metrics for signals and the effects bound to them, recorded in a
+ * Micrometer registry.
+ * <p>
+ * Nothing is recorded until a registry is {@linkplain #install(MeterRegistry)
+ * installed}. From then on
+ * <ul>
+ * <li>{@value #WRITES} counts the writes of every named signal of this package,
+ * tagged by signal. Writes through {@link SignalBatch#set(ValueSignal, Object)}
+ * are tagged {@value #VALUE_SIGNAL_WRITES}, and other signals count their
+ * writes under a name of their own with {@link #recordWrite(String)},</li>
+ * <li>{@value #EFFECT_DURATION} times every run of an effect registered through
+ * an {@link EffectBinder}, as a histogram tagged by the route of the view
+ * owning the effect,</li>
+ * <li>{@value #ACTIVE_EFFECTS} counts the effects of each view that are
+ * attached, i.e. subscribed to their signals.</li>
+ * </ul>
+ * Effects registered while no registry is installed are not instrumented and
+ * run without any overhead.
+ */
+public final class SignalInstrumentation {
+
+    public static final String WRITES = "signals.writes";
+    public static final String EFFECT_DURATION = "signals.effect.duration";
+    public static final String ACTIVE_EFFECTS = "signals.effects.active";
+
+    /** The signal tag of the writes through {@link SignalBatch#set(ValueSignal, Object)} */
+    public static final String VALUE_SIGNAL_WRITES = "value-signal";
+
+    private static final String UNKNOWN_VIEW = "unknown";
+
+    private static volatile MeterRegistry registry;
+    private static final Map<String, Counter> writeCounters = new ConcurrentHashMap<>();
+    private static final Map<String, Timer> effectTimers = new ConcurrentHashMap<>();
+    private static final Map<String, AtomicInteger> activeEffects = new ConcurrentHashMap<>();
+
+    private SignalInstrumentation() {
+    }
+
+    public static synchronized void install(MeterRegistry meterRegistry) {
+        writeCounters.clear();
+        effectTimers.clear();
+        activeEffects.clear();
+        registry = meterRegistry;
+    }
+
+    public static synchronized void uninstall() {
+        registry = null;
+    }
+
+    public static boolean isInstalled() {
+        return registry != null;
+    }
+
+    /**
+     * Counts a write of the named signal, for signals written without a signal
+     * type of this package, e.g. a {@code ListSignal}.
+     */
+    public static void recordWrite(String signal) {
+        MeterRegistry meterRegistry = registry;
+        if (meterRegistry != null && signal != null) {
+            writeCounters.computeIfAbsent(signal, key -> meterRegistry.counter(WRITES, "signal", key)).increment();
+        }
+    }
+
+    /**
+     * Registers an effect through the given binder, measuring its runs if
+     * instrumentation is installed.
+     */
+    static Registration effect(EffectBinder binder, Component owner, SerializableRunnable action) {
+        if (registry == null) {
+            return binder.effect(owner, action);
+        }
+        InstrumentedEffect effect = new InstrumentedEffect(owner, action);
+        Registration attach = owner.addAttachListener(event -> effect.attached());
+        Registration detach = owner.addDetachListener(event -> effect.detached());
+        if (owner.isAttached()) {
+            effect.attached();
+        }
+        Registration registration = binder.effect(owner, effect::run);
+        return () -> {
+            registration.remove();
+            attach.remove();
+            detach.remove();
+            effect.detached();
+        };
+    }
+
+    private static Timer effectTimer(String view) {
+        MeterRegistry meterRegistry = registry;
+        if (meterRegistry == null) {
+            return null;
+        }
+        return effectTimers.computeIfAbsent(view, key -> Timer.builder(EFFECT_DURATION)
+                .tag("view", key)
+                .publishPercentiles(0.5, 0.99)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+
+    private static AtomicInteger activeEffects(String view) {
+        MeterRegistry meterRegistry = registry;
+        return activeEffects.computeIfAbsent(view, key -> {
+            AtomicInteger count = new AtomicInteger();
+            if (meterRegistry != null) {
+                Gauge.builder(ACTIVE_EFFECTS, count, AtomicInteger::get).tag("view", key).register(meterRegistry);
+            }
+            return count;
+        });
+    }
+
+    // The route target the owner is attached to, or the owner itself while it is not attached to one
+    private static String view(Component owner) {
+        Component component = owner;
+        while (true) {
+            if (component.getClass().isAnnotationPresent(Route.class)) {
+                return component.getClass().getSimpleName();
+            }
+            Component parent = component.getParent().orElse(null);
+            if (parent == null) {
+                return owner.isAttached() ? UNKNOWN_VIEW : owner.getClass().getSimpleName();
+            }
+            component = parent;
+        }
+    }
+
+    private static final class InstrumentedEffect implements Serializable {
+
+        private final Component owner;
+        private final SerializableRunnable action;
+        private transient String view;
+        private boolean attached;
+
+        InstrumentedEffect(Component owner, SerializableRunnable action) {
+            this.owner = owner;
+            this.action = action;
+        }
+
+        void run() {
+            Timer timer = effectTimer(view());
+            if (timer == null) {
+                action.run();
+            } else {
+                timer.record(action);
+            }
+        }
+
+        synchronized void attached() {
+            if (!attached) {
+                attached = true;
+                // The whole tree is attached by now, so the view is known
+                view = null;
+                activeEffects(view()).incrementAndGet();
+            }
+        }
+
+        synchronized void detached() {
+            if (attached) {
+                attached = false;
+                activeEffects(view()).decrementAndGet();
+            }
+        }
+
+        private String view() {
+            if (view == null) {
+                view = SignalInstrumentation.view(owner);
+            }
+            return view;
+        }
+    }
+}
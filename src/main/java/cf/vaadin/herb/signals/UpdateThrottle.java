@@ -0,0 +1,124 @@
+package cf.vaadin.herb.signals;
+
+import java.time.Duration;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.vaadin.flow.component.Component;
+import com.vaadin.flow.component.ComponentEffect;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.function.SerializableRunnable;
+import com.vaadin.flow.shared.Registration;
+import com.vaadin.signals.Signal;
+
+/**
+ * Limits how often the effects of one UI run for changes to shared signals.
+ * <p>
+ * Effects registered through the throttle do not depend on the signals they
+ * read but on a frame counter of the UI. A new frame is requested whenever the
+ * source signals change. If the previous frame is still queued for the UI, the
+ * request is dropped, since the queued frame will render the latest values
+ * anyway. At most one update is thus pending per UI, however fast the source
+ * changes. While the UI is hidden, frames are released at most once per hidden
+ * interval.
+ * <p>
+ * The effects run for every frame, so they should skip work when the values
+ * they render have not changed.
+ */
+public class UpdateThrottle implements EffectBinder {
+
+    private static final LongAdder conflatedFrames = new LongAdder();
+    private static final LongAdder hiddenFrames = new LongAdder();
+
+    private final LongSignal frame = new LongSignal(0);
+    private final Duration hiddenInterval;
+    private volatile boolean hidden;
+    private long lastFrameMillis;
+    private Future<Void> pendingFrame;
+    private Runnable subscription;
+    private UI ui;
+
+    public UpdateThrottle(Duration hiddenInterval) {
+        this.hiddenInterval = hiddenInterval;
+    }
+
+    /**
+     * Requests frames for the owner's UI whenever a signal read by
+     * {@code source} changes, as long as the owner is attached.
+     */
+    public void connect(Component owner, SerializableRunnable source) {
+        owner.addAttachListener(event -> start(event.getUI(), source));
+        owner.addDetachListener(event -> stop());
+    }
+
+    @Override
+    public Registration effect(Component owner, SerializableRunnable action) {
+        return SignalInstrumentation.effect((effectOwner, instrumented) -> ComponentEffect.effect(effectOwner, () -> {
+            frame.value();
+            Signal.untracked(() -> {
+                instrumented.run();
+                return null;
+            });
+        }), owner, action);
+    }
+
+    /**
+     * Sets whether the UI is hidden, e.g. a background tab. Becoming visible
+     * releases a frame right away.
+     */
+    public void setHidden(boolean hidden) {
+        this.hidden = hidden;
+        if (!hidden) {
+            requestFrame();
+        }
+    }
+
+    /**
+     * The number of frame requests dropped because a frame was still pending.
+     */
+    public static long conflatedFrames() {
+        return conflatedFrames.sum();
+    }
+
+    /**
+     * The number of frame requests dropped because the UI was hidden.
+     */
+    public static long hiddenFrames() {
+        return hiddenFrames.sum();
+    }
+
+    private synchronized void start(UI ui, Runnable source) {
+        stop();
+        this.ui = ui;
+        subscription = Signal.effect(() -> {
+            source.run();
+            requestFrame();
+        });
+    }
+
+    private synchronized void stop() {
+        if (subscription != null) {
+            subscription.run();
+            subscription = null;
+        }
+        ui = null;
+        pendingFrame = null;
+    }
+
+    private synchronized void requestFrame() {
+        if (ui == null) {
+            return;
+        }
+        if (pendingFrame != null && !pendingFrame.isDone()) {
+            conflatedFrames.increment();
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (hidden && now - lastFrameMillis < hiddenInterval.toMillis()) {
+            hiddenFrames.increment();
+            return;
+        }
+        lastFrameMillis = now;
+        pendingFrame = ui.access(() -> frame.value(frame.peek() + 1));
+    }
+}
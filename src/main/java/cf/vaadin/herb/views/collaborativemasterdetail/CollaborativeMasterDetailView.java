@@ -1,6 +1,9 @@
 package cf.vaadin.herb.views.collaborativemasterdetail;
 
 import cf.vaadin.herb.data.SamplePerson;
+import cf.vaadin.herb.data.SamplePersonRow;
+import cf.vaadin.herb.services.KeysetPager;
+import cf.vaadin.herb.services.PersonFilter;
 import cf.vaadin.herb.services.SamplePersonService;
 import com.vaadin.collaborationengine.CollaborationAvatarGroup;
 import com.vaadin.collaborationengine.CollaborationBinder;
@@ -29,7 +32,6 @@ import com.vaadin.flow.router.BeforeEnterObserver;
 import com.vaadin.flow.router.Menu;
 import com.vaadin.flow.router.PageTitle;
 import com.vaadin.flow.router.Route;
-import com.vaadin.flow.spring.data.VaadinSpringDataHelpers;
 import java.util.Optional;
 import java.util.UUID;
 import org.springframework.orm.ObjectOptimisticLockingFailureException;
@@ -44,7 +46,7 @@ public class CollaborativeMasterDetailView extends Div implements BeforeEnterObs
     private final String SAMPLEPERSON_ID = "samplePersonID";
     private final String SAMPLEPERSON_EDIT_ROUTE_TEMPLATE = "collaborative-master-detail/%s/edit";
 
-    private final Grid<SamplePerson> grid = new Grid<>(SamplePerson.class, false);
+    private final Grid<SamplePersonRow> grid = new Grid<>(SamplePersonRow.class, false);
 
     CollaborationAvatarGroup avatarGroup;
 
@@ -65,9 +67,13 @@ public class CollaborativeMasterDetailView extends Div implements BeforeEnterObs
     private SamplePerson samplePerson;
 
     private final SamplePersonService samplePersonService;
+    private final KeysetPager<SamplePersonRow> pager;
 
     public CollaborativeMasterDetailView(SamplePersonService samplePersonService) {
         this.samplePersonService = samplePersonService;
+        pager = new KeysetPager<>(
+                (position, limit, sort) -> samplePersonService.find(PersonFilter.NONE, position, limit, sort),
+                (offset, limit, sort) -> samplePersonService.find(PersonFilter.NONE, offset, limit, sort));
         addClassNames("collaborative-master-detail-view");
 
         // UserInfo is used by Collaboration Engine and is used to share details
@@ -97,22 +103,23 @@ public class CollaborativeMasterDetailView extends Div implements BeforeEnterObs
         grid.addColumn("dateOfBirth").setAutoWidth(true);
         grid.addColumn("occupation").setAutoWidth(true);
         grid.addColumn("role").setAutoWidth(true);
-        LitRenderer<SamplePerson> importantRenderer = LitRenderer.<SamplePerson>of(
+        LitRenderer<SamplePersonRow> importantRenderer = LitRenderer.<SamplePersonRow>of(
                 "<vaadin-icon icon='vaadin:${item.icon}' style='width: var(--lumo-icon-size-s); height: var(--lumo-icon-size-s); color: ${item.color};'></vaadin-icon>")
-                .withProperty("icon", important -> important.isImportant() ? "check" : "minus").withProperty("color",
-                        important -> important.isImportant()
+                .withProperty("icon", important -> important.important() ? "check" : "minus").withProperty("color",
+                        important -> important.important()
                                 ? "var(--lumo-primary-text-color)"
                                 : "var(--lumo-disabled-text-color)");
 
         grid.addColumn(importantRenderer).setHeader("Important").setAutoWidth(true);
 
-        grid.setItems(query -> samplePersonService.list(VaadinSpringDataHelpers.toSpringPageRequest(query)).stream());
+        // Sized up front from the cached or estimated count, the grid corrects it at the end of the data
+        grid.setItems(pager::fetch).setItemCountEstimate(Math.max(1, samplePersonService.sizeEstimate()));
         grid.addThemeVariants(GridVariant.LUMO_NO_BORDER);
 
         // when a row is selected or deselected, populate form
         grid.asSingleSelect().addValueChangeListener(event -> {
             if (event.getValue() != null) {
-                UI.getCurrent().navigate(String.format(SAMPLEPERSON_EDIT_ROUTE_TEMPLATE, event.getValue().getId()));
+                UI.getCurrent().navigate(String.format(SAMPLEPERSON_EDIT_ROUTE_TEMPLATE, event.getValue().id()));
             } else {
                 clearForm();
                 UI.getCurrent().navigate(CollaborativeMasterDetailView.class);
@@ -215,6 +222,7 @@ public class CollaborativeMasterDetailView extends Div implements BeforeEnterObs
 
     private void refreshGrid() {
         grid.select(null);
+        pager.reset();
         grid.getDataProvider().refreshAll();
     }
 
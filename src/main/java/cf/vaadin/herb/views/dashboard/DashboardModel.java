@@ -0,0 +1,93 @@
+package cf.vaadin.herb.views.dashboard;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import cf.vaadin.herb.signals.DoubleSignal;
+import cf.vaadin.herb.signals.LongSignal;
+import cf.vaadin.herb.signals.NumberWindowSignal;
+import cf.vaadin.herb.signals.SignalInstrumentation;
+
+import com.vaadin.signals.ListSignal;
+import com.vaadin.signals.Signal;
+import com.vaadin.signals.ValueSignal;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * The dashboard state, shared by all open dashboards.
+ * <p>
+ * There is one instance per application. {@link DashboardTicker} writes into it,
+ * every {@link DashboardView} only subscribes to its signals, so an open
+ * dashboard costs its components and effects but no copy of the data.
+ */
+@Component
+public class DashboardModel {
+
+    static final int TIMELINE_POINTS = 12;
+    static final int RESPONSE_SYSTEMS = 6;
+
+    static final String BERLIN_METRIC = "view-events.berlin";
+    static final String LONDON_METRIC = "view-events.london";
+    static final String NEW_YORK_METRIC = "view-events.new-york";
+    static final String TOKYO_METRIC = "view-events.tokyo";
+    static final String SERVICE_HEALTH_SIGNAL = "dashboard.service-health";
+
+    /** Incremented after every update of the model */
+    final LongSignal revisionSignal = new LongSignal("dashboard.revision", 0);
+
+    final LongSignal currentUsersSignal = new LongSignal("dashboard.current-users", 745);
+    final LongSignal viewEventsSignal = new LongSignal("dashboard.view-events", 54600);
+    final DoubleSignal conversionRateSignal = new DoubleSignal("dashboard.conversion-rate", 18);
+    final DoubleSignal customMetricSignal = new DoubleSignal("dashboard.custom-metric", -123.45);
+
+    /*
+     * The KPIs as shown on the cards. Computed on the first read after a change
+     * and shared by all dashboards, so the formatting runs once per change.
+     */
+    final Signal<String> currentUsersText = Signal.computed(() -> String.valueOf(currentUsersSignal.value()));
+    final Signal<String> viewEventsText = Signal.computed(() -> formatCompactNumber(viewEventsSignal.value()));
+    final Signal<String> conversionRateText = Signal
+            .computed(() -> String.format("%.1f%%", conversionRateSignal.value()));
+    final Signal<String> customMetricText = Signal.computed(() -> String.valueOf(customMetricSignal.value()));
+
+    /** Epoch milliseconds of each timeline point */
+    final NumberWindowSignal timelineTimesSignal = new NumberWindowSignal("dashboard.timeline-times",
+            TIMELINE_POINTS);
+    final NumberWindowSignal berlinTimelineSignal = new NumberWindowSignal(BERLIN_METRIC, TIMELINE_POINTS);
+    final NumberWindowSignal londonTimelineSignal = new NumberWindowSignal(LONDON_METRIC, TIMELINE_POINTS);
+    final NumberWindowSignal newYorkTimelineSignal = new NumberWindowSignal(NEW_YORK_METRIC, TIMELINE_POINTS);
+    final NumberWindowSignal tokyoTimelineSignal = new NumberWindowSignal(TOKYO_METRIC, TIMELINE_POINTS);
+    final ListSignal<ServiceHealth> serviceHealthSignal = new ListSignal<>(ServiceHealth.class);
+    final ListSignal<Number> responseSignal = new ListSignal<>(Number.class);
+
+    private final Map<String, ValueSignal<ServiceHealth>> serviceHealthByCity = new ConcurrentHashMap<>();
+
+    public DashboardModel() {
+        for (int i = 0; i < RESPONSE_SYSTEMS; i++) {
+            responseSignal.insertLast(12.5);
+        }
+    }
+
+    void initServiceHealth(List<ServiceHealth> services) {
+        serviceHealthSignal.clear();
+        serviceHealthByCity.clear();
+        services.forEach(serviceHealthSignal::insertLast);
+        SignalInstrumentation.recordWrite(SERVICE_HEALTH_SIGNAL);
+        serviceHealthSignal.value()
+                .forEach(healthSignal -> serviceHealthByCity.put(healthSignal.value().getCity(), healthSignal));
+    }
+
+    ValueSignal<ServiceHealth> serviceHealth(String city) {
+        return serviceHealthByCity.get(city);
+    }
+
+    private static String formatCompactNumber(double value) {
+        if (value >= 1000) {
+            double rounded = Math.round(value / 100.0) / 10.0;
+            return rounded + "k";
+        }
+        return String.valueOf((long) value);
+    }
+}
@@ -0,0 +1,117 @@
+package cf.vaadin.herb.views.dashboard;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import cf.vaadin.herb.services.metrics.MetricsStore;
+import cf.vaadin.herb.signals.NumberWindowSignal;
+import cf.vaadin.herb.signals.SignalBatch;
+import cf.vaadin.herb.views.dashboard.ServiceHealth.Status;
+
+import com.vaadin.signals.ValueSignal;
+
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Application-scoped producer of the dashboard mock data.
+ * <p>
+ * A single scheduled task writes into the shared {@link DashboardModel}. Every
+ * open {@link DashboardView} only subscribes to it, the updates reach the
+ * browsers over the {@code @Push} channel instead of each UI polling on its own.
+ */
+@Component
+public class DashboardTicker {
+
+    static final Duration TICK_INTERVAL = Duration.ofSeconds(2);
+
+    private static final Logger log = LoggerFactory.getLogger(DashboardTicker.class);
+
+    private final DashboardModel model;
+    private final MetricsStore metricsStore;
+    private final Random random = new Random();
+    private final ScheduledExecutorService scheduler = Executors
+            .newSingleThreadScheduledExecutor(Thread.ofVirtual().name("dashboard-ticker").factory());
+
+    public DashboardTicker(DashboardModel model, MetricsStore metricsStore) {
+        this.model = model;
+        this.metricsStore = metricsStore;
+        model.initServiceHealth(mockServiceHealth());
+        scheduler.scheduleAtFixedRate(this::tick, 0, TICK_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        scheduler.shutdownNow();
+    }
+
+    private void tick() {
+        try {
+            // One commit per tick, each dependent effect runs at most once for it
+            SignalBatch.run(this::updateMockData);
+        } catch (RuntimeException e) {
+            // An exception would cancel the scheduled task for good
+            log.warn("Dashboard tick failed", e);
+        }
+    }
+
+    private void updateMockData() {
+        model.currentUsersSignal.value(randomBetween(650, 820));
+        model.viewEventsSignal.value(randomBetween(42000, 62000));
+        model.conversionRateSignal.value(randomBetween(12, 24));
+        model.customMetricSignal.value(randomBetween(-200, 200));
+
+        long now = System.currentTimeMillis();
+        appendViewEvents(model.berlinTimelineSignal, DashboardModel.BERLIN_METRIC, now, randomBetween(480, 920));
+        appendViewEvents(model.londonTimelineSignal, DashboardModel.LONDON_METRIC, now, randomBetween(420, 820));
+        appendViewEvents(model.newYorkTimelineSignal, DashboardModel.NEW_YORK_METRIC, now, randomBetween(220, 520));
+        appendViewEvents(model.tokyoTimelineSignal, DashboardModel.TOKYO_METRIC, now, randomBetween(260, 600));
+        model.timelineTimesSignal.append(now);
+
+        for (ValueSignal<Number> signal : model.responseSignal.value()) {
+            SignalBatch.set(signal, randomBetween(6, 22));
+        }
+
+        mockServiceHealth().forEach(newHealth -> {
+            var healthSignal = model.serviceHealth(newHealth.getCity());
+            if (healthSignal != null) {
+                SignalBatch.set(healthSignal, newHealth);
+            }
+        });
+
+        model.revisionSignal.incrementBy(1);
+    }
+
+    private void appendViewEvents(NumberWindowSignal timeline, String metric, long timestamp, int value) {
+        timeline.append(value);
+        metricsStore.append(metric, timestamp, value);
+    }
+
+    private List<ServiceHealth> mockServiceHealth() {
+        return List.of(
+                new ServiceHealth(randomStatus(), "Münster", randomBetween(280, 360), randomBetween(1200, 1700)),
+                new ServiceHealth(randomStatus(), "Cluj-Napoca", randomBetween(260, 340), randomBetween(1100, 1600)),
+                new ServiceHealth(randomStatus(), "Ciudad Victoria", randomBetween(240, 320), randomBetween(1000, 1500)));
+    }
+
+    private Status randomStatus() {
+        int pick = random.nextInt(3);
+        if (pick == 0) {
+            return Status.EXCELLENT;
+        } else if (pick == 1) {
+            return Status.OK;
+        }
+        return Status.FAILING;
+    }
+
+    private int randomBetween(int min, int max) {
+        return min + random.nextInt(max - min + 1);
+    }
+}
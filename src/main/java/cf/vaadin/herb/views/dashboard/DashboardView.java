@@ -1,18 +1,20 @@
 package cf.vaadin.herb.views.dashboard;
 
-import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
-import java.util.function.Function;
-
+import java.util.function.DoubleSupplier;
+
+import cf.vaadin.herb.services.metrics.Downsampled;
+import cf.vaadin.herb.services.metrics.MetricsStore;
+import cf.vaadin.herb.signals.ChartSignals;
+import cf.vaadin.herb.signals.EffectBinder;
+import cf.vaadin.herb.signals.GridSignals;
+import cf.vaadin.herb.signals.UpdateThrottle;
 import cf.vaadin.herb.views.dashboard.ServiceHealth.Status;
 
-import com.vaadin.copilot.shaded.guava.base.Objects;
+import com.vaadin.flow.component.ClientCallable;
 import com.vaadin.flow.component.Component;
-import com.vaadin.flow.component.ComponentEffect;
-import com.vaadin.flow.component.UI;
 import com.vaadin.flow.component.board.Board;
 import com.vaadin.flow.component.charts.Chart;
 import com.vaadin.flow.component.charts.model.*;
@@ -27,16 +29,16 @@ import com.vaadin.flow.component.icon.VaadinIcon;
 import com.vaadin.flow.component.orderedlayout.FlexComponent;
 import com.vaadin.flow.component.orderedlayout.HorizontalLayout;
 import com.vaadin.flow.component.orderedlayout.VerticalLayout;
+import com.vaadin.flow.component.select.Select;
 import com.vaadin.flow.data.renderer.ComponentRenderer;
 import com.vaadin.flow.router.Menu;
 import com.vaadin.flow.router.PageTitle;
 import com.vaadin.flow.router.Route;
+import com.vaadin.flow.shared.Registration;
 import com.vaadin.flow.theme.lumo.LumoUtility.FontSize;
 import com.vaadin.flow.theme.lumo.LumoUtility.FontWeight;
 import com.vaadin.flow.theme.lumo.LumoUtility.Margin;
 import com.vaadin.flow.theme.lumo.LumoUtility.TextColor;
-import com.vaadin.signals.ListSignal;
-import com.vaadin.signals.NumberSignal;
 import com.vaadin.signals.Signal;
 import com.vaadin.signals.ValueSignal;
 
@@ -47,72 +49,73 @@ import org.vaadin.lineawesome.LineAwesomeIconUrl;
 @Menu(order = 1, icon = LineAwesomeIconUrl.CHART_AREA_SOLID)
 public class DashboardView extends Main {
 
-    private static final int TIMELINE_POINTS = 12;
-    private static final int TIMELINE_STEP_SECONDS = 10;
-    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm:ss");
+    private static final int PIXELS_PER_HISTORY_POINT = 8;
+    private static final Duration HIDDEN_REFRESH_INTERVAL = Duration.ofSeconds(30);
 
-    private NumberSignal currentUsersSignal = new NumberSignal(745);
-    private NumberSignal viewEventsSignal = new NumberSignal(54600);
-    private NumberSignal conversionRateSignal = new NumberSignal(18);
-    private NumberSignal customMetricSignal = new NumberSignal(-123.45);
+    private final DashboardModel model;
+    private final MetricsStore metricsStore;
+    private final List<Registration> liveTimelineBindings = new ArrayList<>();
+    private final UpdateThrottle throttle = new UpdateThrottle(HIDDEN_REFRESH_INTERVAL);
+    private TimelineRange shownRange;
 
-    private final Random random = new Random();
-    private final List<HighlightCard> highlightCards = new ArrayList<>();
     private Chart viewEventsChart;
     private XAxis viewEventsXAxis;
-    private ListSeries berlinSeries;
-    private ListSeries londonSeries;
-    private ListSeries newYorkSeries;
-    private ListSeries tokyoSeries;
-    private final ListSignal<String> timelineCategoriesSignal = new ListSignal<>(String.class);
-    private final ListSignal<Number> berlinTimelineSignal = new ListSignal<>(Number.class);
-    private final ListSignal<Number> londonTimelineSignal = new ListSignal<>(Number.class);
-    private final ListSignal<Number> newYorkTimelineSignal = new ListSignal<>(Number.class);
-    private final ListSignal<Number> tokyoTimelineSignal = new ListSignal<>(Number.class);
-    private final ListSignal<ServiceHealth> serviceHealthSignal = new ListSignal<>(ServiceHealth.class);
+    private DataSeries berlinSeries;
+    private DataSeries londonSeries;
+    private DataSeries newYorkSeries;
+    private DataSeries tokyoSeries;
     private Chart responseTimesChart;
     private DataSeries responseSeries;
-    private final ListSignal<Number> responseSignal = new ListSignal<>(Number.class);
     private Grid<ValueSignal<ServiceHealth>> serviceHealthGrid;
 
-    public DashboardView() {
+    // All subscriptions to the shared model are component effects. They are only
+    // active while the view is attached, so a closed dashboard is not kept alive.
+    // The effects run through the throttle, which renders the model at most once
+    // per pending push and less often while the browser tab is hidden.
+    public DashboardView(DashboardModel model, MetricsStore metricsStore) {
+        this.model = model;
+        this.metricsStore = metricsStore;
         addClassName("dashboard-view");
+        throttle.connect(this, () -> model.revisionSignal.value());
 
         Board board = new Board();
-        board.addRow(createHighlightCard("Current users", currentUsersSignal, this::formatNumber),
-                createHighlightCard("View events", viewEventsSignal, this::formatCompactNumber),
-                createHighlightCard("Conversion rate", conversionRateSignal, number -> String.format("%.1f%%", number.doubleValue())),
-                createHighlightCard("Custom metric", customMetricSignal, this::formatNumber));
+        board.addRow(new HighlightCard(throttle, "Current users", model.currentUsersSignal::value, model.currentUsersText),
+                new HighlightCard(throttle, "View events", model.viewEventsSignal::value, model.viewEventsText),
+                new HighlightCard(throttle, "Conversion rate", model.conversionRateSignal::value, model.conversionRateText),
+                new HighlightCard(throttle, "Custom metric", model.customMetricSignal::value, model.customMetricText));
         board.addRow(createViewEvents());
         board.addRow(createServiceHealth(), createResponseTimes());
         add(board);
 
-        addAttachListener(event -> {
-            // TODO do not use polling for this
-            UI ui = event.getUI();
-            ui.setPollInterval(2000);
-            ui.addPollListener(pollEvent -> updateMockData());
-        });
+        addAttachListener(event -> getElement().executeJs("""
+                document.removeEventListener('visibilitychange', this._visibilityListener);
+                this._visibilityListener = () => this.isConnected && this.$server.visibilityChanged(document.hidden);
+                document.addEventListener('visibilitychange', this._visibilityListener);
+                if (document.hidden) {
+                    this._visibilityListener();
+                }
+                """));
     }
 
-    private HighlightCard createHighlightCard(String title, NumberSignal signal, Function<Number, String> format) {
-        
-        HighlightCard card = new HighlightCard(title, signal, format);
-        card.update(signal.value());
-        highlightCards.add(card);
-        return card;
+    @ClientCallable
+    private void visibilityChanged(boolean hidden) {
+        throttle.setHidden(hidden);
     }
 
     private Component createViewEvents() {
         // Header
-        HorizontalLayout header = createHeader("View events", "City / last 2 min");
+        HorizontalLayout header = createHeader("View events", "City");
 
         // Chart
         Chart chart = new Chart(ChartType.AREASPLINE);
         Configuration conf = chart.getConfiguration();
         conf.getChart().setStyledMode(true);
 
+        // Browser local time for the timestamps of the points
+        conf.getTime().setUseUTC(false);
+
         XAxis xAxis = new XAxis();
+        xAxis.setType(AxisType.DATETIME);
         conf.addxAxis(xAxis);
         viewEventsXAxis = xAxis;
 
@@ -123,31 +126,10 @@ public class DashboardView extends Main {
         plotOptions.setMarker(new Marker(false));
         conf.addPlotOptions(plotOptions);
 
-        berlinSeries = new ListSeries("Berlin", new Number[0]);
-        londonSeries = new ListSeries("London", new Number[0]);
-        newYorkSeries = new ListSeries("New York", new Number[0]);
-        tokyoSeries = new ListSeries("Tokyo", new Number[0]);
-
-        ComponentEffect.effect(chart, () -> {
-            berlinSeries.setData(berlinTimelineSignal.value().stream().map(Signal::value).toArray(Number[]::new));
-            // TODO issue of getting the values from ListSignal instead of Signal<Number>
-        });
-        
-        ComponentEffect.effect(chart, () -> {
-            londonSeries.setData(londonTimelineSignal.value().stream().map(Signal::value).toArray(Number[]::new));
-        });
-        
-        ComponentEffect.effect(chart, () -> {
-            newYorkSeries.setData(newYorkTimelineSignal.value().stream().map(Signal::value).toArray(Number[]::new));
-        });
-        
-        ComponentEffect.effect(chart, () -> {
-            tokyoSeries.setData(tokyoTimelineSignal.value().stream().map(Signal::value).toArray(Number[]::new));
-        });
-        
-        ComponentEffect.effect(chart, () -> {
-            xAxis.setCategories(timelineCategoriesSignal.value().stream().map(Signal::value).toArray(String[]::new));
-        });
+        berlinSeries = new DataSeries("Berlin");
+        londonSeries = new DataSeries("London");
+        newYorkSeries = new DataSeries("New York");
+        tokyoSeries = new DataSeries("Tokyo");
 
         conf.addSeries(berlinSeries);
         conf.addSeries(londonSeries);
@@ -156,6 +138,14 @@ public class DashboardView extends Main {
 
         viewEventsChart = chart;
 
+        Select<TimelineRange> range = new Select<>();
+        range.setItems(TimelineRange.values());
+        range.setItemLabelGenerator(TimelineRange::getLabel);
+        range.setValue(TimelineRange.LIVE);
+        range.addValueChangeListener(event -> showTimeline(event.getValue()));
+        header.add(range);
+        showTimeline(TimelineRange.LIVE);
+
         // Add it all together
         VerticalLayout viewEvents = new VerticalLayout(header, chart);
         viewEvents.setSpacing(false);
@@ -163,6 +153,44 @@ public class DashboardView extends Main {
         return viewEvents;
     }
 
+    private void showTimeline(TimelineRange range) {
+        shownRange = range;
+        liveTimelineBindings.forEach(Registration::remove);
+        liveTimelineBindings.clear();
+
+        if (range == TimelineRange.LIVE) {
+            liveTimelineBindings.add(ChartSignals.bindWindow(throttle, viewEventsChart, berlinSeries, model.timelineTimesSignal, model.berlinTimelineSignal));
+            liveTimelineBindings.add(ChartSignals.bindWindow(throttle, viewEventsChart, londonSeries, model.timelineTimesSignal, model.londonTimelineSignal));
+            liveTimelineBindings.add(ChartSignals.bindWindow(throttle, viewEventsChart, newYorkSeries, model.timelineTimesSignal, model.newYorkTimelineSignal));
+            liveTimelineBindings.add(ChartSignals.bindWindow(throttle, viewEventsChart, tokyoSeries, model.timelineTimesSignal, model.tokyoTimelineSignal));
+            return;
+        }
+
+        // Only as many points as the chart is wide, the store aggregates the rest
+        viewEventsChart.getElement().executeJs("return this.clientWidth").then(Integer.class, width -> {
+            // Another range was selected while the width was on its way
+            if (shownRange != range) {
+                return;
+            }
+            int points = Math.max(10, width / PIXELS_PER_HISTORY_POINT);
+            long to = System.currentTimeMillis();
+            long from = to - range.getDuration().toMillis();
+            setHistory(berlinSeries, metricsStore.query(DashboardModel.BERLIN_METRIC, from, to, points));
+            setHistory(londonSeries, metricsStore.query(DashboardModel.LONDON_METRIC, from, to, points));
+            setHistory(newYorkSeries, metricsStore.query(DashboardModel.NEW_YORK_METRIC, from, to, points));
+            setHistory(tokyoSeries, metricsStore.query(DashboardModel.TOKYO_METRIC, from, to, points));
+            viewEventsChart.drawChart();
+        });
+    }
+
+    private void setHistory(DataSeries series, Downsampled history) {
+        List<DataSeriesItem> items = new ArrayList<>(history.size());
+        for (int i = 0; i < history.size(); i++) {
+            items.add(new DataSeriesItem(history.timestamps()[i], history.avg()[i]));
+        }
+        series.setData(items);
+    }
+
     private Component createServiceHealth() {
         // Header
         HorizontalLayout header = createHeader("Service health", "Input / output");
@@ -172,34 +200,30 @@ public class DashboardView extends Main {
         grid.addThemeVariants(GridVariant.LUMO_NO_BORDER);
         grid.setAllRowsVisible(true);
 
+        // Every cell selects the field it renders and is only updated when that field changes
         grid.addColumn(new ComponentRenderer<>(signal -> {
             Span status = new Span();
 
-            ComponentEffect.effect(status, () -> {
-                ServiceHealth serviceHealth = signal.value();
-                String statusTextInner = getStatusDisplayName(serviceHealth);
+            throttle.select(status, () -> signal.value().getStatus(), shownStatus -> {
+                String statusTextInner = getStatusDisplayName(shownStatus);
                 status.getElement().setAttribute("aria-label", "Status: " + statusTextInner);
                 status.getElement().setAttribute("title", "Status: " + statusTextInner);
                 status.getElement().getThemeList().clear();
-                status.getElement().getThemeList().add(getStatusTheme(serviceHealth));
+                status.getElement().getThemeList().add(getStatusTheme(shownStatus));
             });
             return status;
         })).setHeader("").setFlexGrow(0).setAutoWidth(true);
         grid.addColumn(signal -> signal.value().getCity()).setHeader("City").setFlexGrow(1);
         grid.addColumn(new ComponentRenderer<>(signal -> {
-            var input = new Span(String.valueOf(signal.value().getInput()));
+            var input = new Span();
     
-            ComponentEffect.effect(input, () -> {
-                input.setText(String.valueOf(signal.value().getInput()));
-            });
+            throttle.select(input, () -> signal.value().getInput(), value -> input.setText(String.valueOf(value)));
             return input;
         })).setHeader("Input").setAutoWidth(true).setTextAlign(ColumnTextAlign.END);
         grid.addColumn(new ComponentRenderer<>(signal -> {
-            var output = new Span(String.valueOf(signal.value().getOutput()));
+            var output = new Span();
     
-            ComponentEffect.effect(output, () -> {
-                output.setText(String.valueOf(signal.value().getOutput()));
-            });
+            throttle.select(output, () -> signal.value().getOutput(), value -> output.setText(String.valueOf(value)));
             return output;
         })).setHeader("Output").setAutoWidth(true)
                 .setTextAlign(ColumnTextAlign.END);
@@ -209,12 +233,7 @@ public class DashboardView extends Main {
         // Add it all together
         VerticalLayout serviceHealth = new VerticalLayout(header, grid);
 
-        ComponentEffect.effect(grid, () -> {
-            grid.setItems(serviceHealthSignal.value());
-            // TODO not this, update each signal individually
-        });
-
-        mockServiceHealth().forEach(health -> serviceHealthSignal.insertLast(health));
+        GridSignals.bindItems(throttle, grid, model.serviceHealthSignal, ServiceHealth::getCity);
 
         return serviceHealth;
     }
@@ -238,22 +257,10 @@ public class DashboardView extends Main {
         responseSeries.add(new DataSeriesItem("System 6", 12.5));
         conf.addSeries(responseSeries);
 
-        ComponentEffect.effect(chart, () -> {
-            var responseValues = responseSignal.value();
-            responseSeries.get(0).setY(responseValues.get(0).value());
-            responseSeries.get(1).setY(responseValues.get(1).value());
-            responseSeries.get(2).setY(responseValues.get(2).value());
-            responseSeries.get(3).setY(responseValues.get(3).value());
-            responseSeries.get(4).setY(responseValues.get(4).value());
-            responseSeries.get(5).setY(responseValues.get(5).value());
-        });
-
-        responseSignal.insertLast(12.5);
-        responseSignal.insertLast(12.5);
-        responseSignal.insertLast(12.5);
-        responseSignal.insertLast(12.5);
-        responseSignal.insertLast(12.5);
-        responseSignal.insertLast(12.5);
+        var responseValues = model.responseSignal.value();
+        for (int i = 0; i < responseValues.size(); i++) {
+            ChartSignals.bindY(throttle, chart, responseSeries, i, responseValues.get(i));
+        }
 
         // Add it all together
         VerticalLayout serviceHealth = new VerticalLayout(header, chart);
@@ -279,8 +286,7 @@ public class DashboardView extends Main {
         return header;
     }
 
-    private String getStatusDisplayName(ServiceHealth serviceHealth) {
-        Status status = serviceHealth.getStatus();
+    private String getStatusDisplayName(Status status) {
         if (status == Status.OK) {
             return "Ok";
         } else if (status == Status.FAILING) {
@@ -292,8 +298,7 @@ public class DashboardView extends Main {
         }
     }
 
-    private String getStatusTheme(ServiceHealth serviceHealth) {
-        Status status = serviceHealth.getStatus();
+    private String getStatusTheme(Status status) {
         String theme = "badge primary small";
         if (status == Status.EXCELLENT) {
             theme += " success";
@@ -303,123 +308,47 @@ public class DashboardView extends Main {
         return theme;
     }
 
-    private void updateMockData() {
-        if (highlightCards.size() >= 4) {
-            currentUsersSignal.value(randomBetween(650, 820));
-            viewEventsSignal.value(randomBetween(42000, 62000));
-            conversionRateSignal.value(randomBetween(12, 24));
-            customMetricSignal.value(randomBetween(-200, 200));
-        }
-
-        if (berlinTimelineSignal.value().size() >= TIMELINE_POINTS) {
-            berlinTimelineSignal.remove(berlinTimelineSignal.value().getFirst()); // TODO github issue remove first / last? 
-        }
-        berlinTimelineSignal.insertLast(randomBetween(480, 920));
-        
-        if (londonTimelineSignal.value().size() >= TIMELINE_POINTS) {
-            londonTimelineSignal.remove(londonTimelineSignal.value().getFirst());
-        }
-        londonTimelineSignal.insertLast(randomBetween(420, 820));
-
-        if (newYorkTimelineSignal.value().size() >= TIMELINE_POINTS) {
-            newYorkTimelineSignal.remove(newYorkTimelineSignal.value().getFirst());
-        }
-        newYorkTimelineSignal.insertLast(randomBetween(220, 520));
-
-        if (tokyoTimelineSignal.value().size() >= TIMELINE_POINTS) {
-            tokyoTimelineSignal.remove(tokyoTimelineSignal.value().getFirst());
-        }
-        tokyoTimelineSignal.insertLast(randomBetween(260, 600));
-
-        if (timelineCategoriesSignal.value().size() >= TIMELINE_POINTS) {
-            timelineCategoriesSignal.remove(timelineCategoriesSignal.value().getFirst());
-        }
-        timelineCategoriesSignal.insertLast(LocalTime.now().format(TIME_FORMATTER));
-
-        if (viewEventsChart != null) {
-            viewEventsChart.drawChart();
-        }
-
-        for (ValueSignal<Number> signal : responseSignal.value()) {
-            signal.value(randomBetween(6, 22));
-        }
-
-        
-        if (responseTimesChart != null) {
-            responseTimesChart.drawChart();
-        }
-
-        // TODO report issue ListSignal set items / set value
-        //serviceHealthSignal.clear();
-        var healthValues = serviceHealthSignal.value();
-        mockServiceHealth().forEach(newHealth -> {
-            healthValues.forEach(currentHealthSignal -> {
-                var currentHealt = currentHealthSignal.value();
-                if (Objects.equal(currentHealt.getCity(), newHealth.getCity())) {
-                    currentHealthSignal.value(newHealth);
-                }
-            });
-        });
-    }
-
-    private List<ServiceHealth> mockServiceHealth() {
-        return List.of(
-                new ServiceHealth(randomStatus(), "Münster", randomBetween(280, 360), randomBetween(1200, 1700)),
-                new ServiceHealth(randomStatus(), "Cluj-Napoca", randomBetween(260, 340), randomBetween(1100, 1600)),
-                new ServiceHealth(randomStatus(), "Ciudad Victoria", randomBetween(240, 320), randomBetween(1000, 1500)));
-    }
-
-    private Status randomStatus() {
-        int pick = random.nextInt(3);
-        if (pick == 0) {
-            return Status.EXCELLENT;
-        } else if (pick == 1) {
-            return Status.OK;
-        }
-        return Status.FAILING;
-    }
-
-    private int randomBetween(int min, int max) {
-        return min + random.nextInt(max - min + 1);
-    }
-
-    private String formatNumber(Number value) {
-        return String.valueOf(value);
-    }
-
-    private String formatCompactNumber(Number value) {
-        if (value.doubleValue() >= 1000) {
-            double rounded = Math.round(value.doubleValue() / 100.0) / 10.0;
-            return rounded + "k";
-        }
-        return String.valueOf(value);
-    }
-
+    /**
+     * Only sends changes to the client when the formatted text or the badge
+     * actually differ from what is shown.
+     */
     private static final class HighlightCard extends VerticalLayout{
         private final Span valueSpan;
         private final Span badge;
-        private final Function<Number, String> format;
-        private Number lastNumeric;
+        private final Span badgeText = new Span();
+        private final Signal<String> text;
+        private String lastText;
+        private String lastBadgeText;
+        private double lastNumeric = Double.NaN;
+        private VaadinIcon lastIcon;
+        private String lastTheme;
 
-        private HighlightCard(String title, NumberSignal signal, Function<Number, String> format) {
-            this.format = format;
+        private HighlightCard(EffectBinder binder, String title, DoubleSupplier signal, Signal<String> text) {
+            this.text = text;
 
             H2 h2 = new H2(title);
             h2.addClassNames(FontWeight.NORMAL, Margin.NONE, TextColor.SECONDARY, FontSize.XSMALL);
 
-            valueSpan = new Span(format.apply(signal.value()));
+            valueSpan = new Span();
             valueSpan.addClassNames(FontWeight.SEMIBOLD, FontSize.XXXLARGE);
-            ComponentEffect.effect(valueSpan, () -> update(signal.value()));
-
             badge = new Span();
+            update(signal.getAsDouble());
+            binder.effect(valueSpan, () -> update(signal.getAsDouble()));
 
             add(h2, valueSpan, badge);
             getStyle().setGap("5px");
         }
 
-        private void update(Number newValue) {
-            valueSpan.setText(format.apply(newValue));
-            badge.removeAll();
+        private void update(double newValue) {
+            // Frames of the throttle also come for other changes, the badge keeps the last delta of this value
+            if (newValue == lastNumeric) {
+                return;
+            }
+            String newText = text.value();
+            if (!newText.equals(lastText)) {
+                valueSpan.setText(newText);
+                lastText = newText;
+            }
 
             VaadinIcon icon = VaadinIcon.ARROW_UP;
             String prefix = "";
@@ -436,21 +365,33 @@ public class DashboardView extends Main {
                 theme += " error";
             }
 
-            Icon i = icon.create();
-            i.setSize("10px");
-            i.getStyle().setMarginRight("4px").setMarginLeft("0");
-            badge.add(i, new Span(prefix + percentage));
-            badge.getElement().getThemeList().clear();
-            badge.getElement().getThemeList().add(theme);
+            if (icon != lastIcon) {
+                Icon i = icon.create();
+                i.setSize("10px");
+                i.getStyle().setMarginRight("4px").setMarginLeft("0");
+                badge.removeAll();
+                badge.add(i, badgeText);
+                lastIcon = icon;
+            }
+            String newBadgeText = prefix + percentage;
+            if (!newBadgeText.equals(lastBadgeText)) {
+                badgeText.setText(newBadgeText);
+                lastBadgeText = newBadgeText;
+            }
+            if (!theme.equals(lastTheme)) {
+                badge.getElement().getThemeList().clear();
+                badge.getElement().getThemeList().add(theme);
+                lastTheme = theme;
+            }
 
             lastNumeric = newValue;
         }
 
-        private double calculatePercentageChange(Number current, Number previous) {
-            if (previous == null) {
+        private double calculatePercentageChange(double current, double previous) {
+            if (Double.isNaN(previous)) {
                 return 0.0;
             }
-            double percent = ((current.doubleValue() - previous.doubleValue()) / Math.abs(previous.doubleValue())) * 100.0;
+            double percent = ((current - previous) / Math.abs(previous)) * 100.0;
             return Math.round(percent * 10.0) / 10.0;
         }
     }
@@ -1,5 +1,7 @@
 package cf.vaadin.herb.views.dashboard;
 
+import java.util.Objects;
+
 /**
  * Simple DTO class for the inbox list to demonstrate complex object data
  */
@@ -62,4 +64,14 @@ public class ServiceHealth {
         this.output = output;
     }
 
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof ServiceHealth other && status == other.status && Objects.equals(city, other.city)
+                && input == other.input && output == other.output;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(status, city, input, output);
+    }
 }
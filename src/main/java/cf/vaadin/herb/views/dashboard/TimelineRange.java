@@ -0,0 +1,34 @@
+package cf.vaadin.herb.views.dashboard;
+
+import java.time.Duration;
+
+/**
+ * Time ranges the view events chart can show. The shortest one is the live
+ * window of the latest points, one per tick of the {@link DashboardTicker},
+ * the others are read from the metrics store.
+ */
+enum TimelineRange {
+    LIVE("Last " + liveWindow().toSeconds() + " s", liveWindow()),
+    LAST_HOUR("Last hour", Duration.ofHours(1)),
+    LAST_DAY("Last day", Duration.ofDays(1));
+
+    private final String label;
+    private final Duration duration;
+
+    TimelineRange(String label, Duration duration) {
+        this.label = label;
+        this.duration = duration;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    private static Duration liveWindow() {
+        return DashboardTicker.TICK_INTERVAL.multipliedBy(DashboardModel.TIMELINE_POINTS);
+    }
+}
@@ -0,0 +1,93 @@
+package cf.vaadin.herb.views.diagnostics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.vaadin.lineawesome.LineAwesomeIconUrl;
+
+import cf.vaadin.herb.signals.SignalBatch;
+import cf.vaadin.herb.signals.SignalInstrumentation;
+import cf.vaadin.herb.signals.UpdateThrottle;
+
+import com.vaadin.flow.component.button.Button;
+import com.vaadin.flow.component.grid.Grid;
+import com.vaadin.flow.component.html.Div;
+import com.vaadin.flow.component.html.H3;
+import com.vaadin.flow.component.orderedlayout.VerticalLayout;
+import com.vaadin.flow.router.Menu;
+import com.vaadin.flow.router.PageTitle;
+import com.vaadin.flow.router.Route;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+
+/**
+ * Shows the signal instrumentation of this node, to find the views whose
+ * effects run most often or take longest and the signals written most often.
+ */
+@PageTitle("Diagnostics")
+@Route("diagnostics")
+@Menu(order = 16, icon = LineAwesomeIconUrl.HEARTBEAT_SOLID)
+public class DiagnosticsView extends VerticalLayout {
+
+    record EffectRow(String view, int activeEffects, long runs, double meanMillis, double p99Millis,
+            double maxMillis) {
+    }
+
+    record WriteRow(String signal, long writes) {
+    }
+
+    private final MeterRegistry registry;
+    private final Div totals = new Div();
+    private final Grid<EffectRow> effectGrid = new Grid<>(EffectRow.class);
+    private final Grid<WriteRow> writeGrid = new Grid<>(WriteRow.class);
+
+    public DiagnosticsView(MeterRegistry registry) {
+        this.registry = registry;
+        if (!SignalInstrumentation.isInstalled()) {
+            add(new Div("Signal instrumentation is disabled, start the application with "
+                    + "signals.instrumentation.enabled=true to record it."));
+        }
+        effectGrid.setAllRowsVisible(true);
+        writeGrid.setAllRowsVisible(true);
+        add(new Button("Refresh", e -> refresh()), totals, new H3("Effects by view"), effectGrid,
+                new H3("Writes by signal"), writeGrid);
+        refresh();
+    }
+
+    private void refresh() {
+        totals.setText("Batches: " + SignalBatch.batches() + ", writes: " + SignalBatch.writes()
+                + ", equal writes suppressed: " + SignalBatch.suppressedWrites()
+                + ", conflated frames: " + UpdateThrottle.conflatedFrames() + ", hidden frames: "
+                + UpdateThrottle.hiddenFrames());
+
+        List<EffectRow> effects = new ArrayList<>();
+        for (Timer timer : registry.find(SignalInstrumentation.EFFECT_DURATION).timers()) {
+            String view = timer.getId().getTag("view");
+            Gauge active = registry.find(SignalInstrumentation.ACTIVE_EFFECTS).tag("view", view).gauge();
+            effects.add(new EffectRow(view, active == null ? 0 : (int) active.value(), timer.count(),
+                    timer.mean(TimeUnit.MILLISECONDS), p99(timer), timer.max(TimeUnit.MILLISECONDS)));
+        }
+        effects.sort(Comparator.comparingLong(EffectRow::runs).reversed());
+        effectGrid.setItems(effects);
+
+        List<WriteRow> writes = registry.find(SignalInstrumentation.WRITES).counters().stream()
+                .map(counter -> new WriteRow(counter.getId().getTag("signal"), (long) counter.count()))
+                .sorted(Comparator.comparingLong(WriteRow::writes).reversed())
+                .toList();
+        writeGrid.setItems(writes);
+    }
+
+    private static double p99(Timer timer) {
+        for (ValueAtPercentile percentile : timer.takeSnapshot().percentileValues()) {
+            if (percentile.percentile() == 0.99) {
+                return percentile.value(TimeUnit.MILLISECONDS);
+            }
+        }
+        return Double.NaN;
+    }
+}
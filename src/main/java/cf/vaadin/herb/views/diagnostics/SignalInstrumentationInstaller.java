@@ -0,0 +1,28 @@
+package cf.vaadin.herb.views.diagnostics;
+
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import cf.vaadin.herb.signals.SignalInstrumentation;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Installs the signal instrumentation into the application's meter registry
+ * when {@code signals.instrumentation.enabled} is set, which also exports the
+ * metrics through the Actuator metrics endpoint.
+ */
+@Component
+@ConditionalOnProperty(name = "signals.instrumentation.enabled", havingValue = "true")
+class SignalInstrumentationInstaller {
+
+    SignalInstrumentationInstaller(MeterRegistry registry) {
+        SignalInstrumentation.install(registry);
+    }
+
+    @PreDestroy
+    void uninstall() {
+        SignalInstrumentation.uninstall();
+    }
+}
@@ -1,6 +1,8 @@
 package cf.vaadin.herb.views.gridwithfilters;
 
-import cf.vaadin.herb.data.SamplePerson;
+import cf.vaadin.herb.data.SamplePersonRow;
+import cf.vaadin.herb.services.KeysetPager;
+import cf.vaadin.herb.services.PersonFilter;
 import cf.vaadin.herb.services.SamplePersonService;
 import com.vaadin.flow.component.Component;
 import com.vaadin.flow.component.Text;
@@ -23,16 +25,7 @@ import com.vaadin.flow.component.textfield.TextField;
 import com.vaadin.flow.router.Menu;
 import com.vaadin.flow.router.PageTitle;
 import com.vaadin.flow.router.Route;
-import com.vaadin.flow.spring.data.VaadinSpringDataHelpers;
 import com.vaadin.flow.theme.lumo.LumoUtility;
-import jakarta.persistence.criteria.CriteriaBuilder;
-import jakarta.persistence.criteria.CriteriaQuery;
-import jakarta.persistence.criteria.Expression;
-import jakarta.persistence.criteria.Predicate;
-import jakarta.persistence.criteria.Root;
-import java.util.ArrayList;
-import java.util.List;
-import org.springframework.data.jpa.domain.Specification;
 import org.vaadin.lineawesome.LineAwesomeIconUrl;
 
 @PageTitle("Grid with Filters")
@@ -41,9 +34,12 @@ import org.vaadin.lineawesome.LineAwesomeIconUrl;
 @Uses(Icon.class)
 public class GridwithFiltersView extends Div {
 
-    private Grid<SamplePerson> grid;
+    private Grid<SamplePersonRow> grid;
+    private KeysetPager<SamplePersonRow> pager;
 
     private Filters filters;
+    // The criteria of the last search, pages read with equal criteria are shared with other sessions
+    private PersonFilter criteria = PersonFilter.NONE;
     private final SamplePersonService samplePersonService;
 
     public GridwithFiltersView(SamplePersonService SamplePersonService) {
@@ -83,7 +79,7 @@ public class GridwithFiltersView extends Div {
         return mobileFilters;
     }
 
-    public static class Filters extends Div implements Specification<SamplePerson> {
+    public static class Filters extends Div {
 
         private final TextField name = new TextField("Name");
         private final TextField phone = new TextField("Phone");
@@ -144,81 +140,18 @@ public class GridwithFiltersView extends Div {
             return dateRangeComponent;
         }
 
-        @Override
-        public Predicate toPredicate(Root<SamplePerson> root, CriteriaQuery<?> query, CriteriaBuilder criteriaBuilder) {
-            List<Predicate> predicates = new ArrayList<>();
-
-            if (!name.isEmpty()) {
-                String lowerCaseFilter = name.getValue().toLowerCase();
-                Predicate firstNameMatch = criteriaBuilder.like(criteriaBuilder.lower(root.get("firstName")),
-                        lowerCaseFilter + "%");
-                Predicate lastNameMatch = criteriaBuilder.like(criteriaBuilder.lower(root.get("lastName")),
-                        lowerCaseFilter + "%");
-                predicates.add(criteriaBuilder.or(firstNameMatch, lastNameMatch));
-            }
-            if (!phone.isEmpty()) {
-                String databaseColumn = "phone";
-                String ignore = "- ()";
-
-                String lowerCaseFilter = ignoreCharacters(ignore, phone.getValue().toLowerCase());
-                Predicate phoneMatch = criteriaBuilder.like(
-                        ignoreCharacters(ignore, criteriaBuilder, criteriaBuilder.lower(root.get(databaseColumn))),
-                        "%" + lowerCaseFilter + "%");
-                predicates.add(phoneMatch);
-
-            }
-            if (startDate.getValue() != null) {
-                String databaseColumn = "dateOfBirth";
-                predicates.add(criteriaBuilder.greaterThanOrEqualTo(root.get(databaseColumn),
-                        criteriaBuilder.literal(startDate.getValue())));
-            }
-            if (endDate.getValue() != null) {
-                String databaseColumn = "dateOfBirth";
-                predicates.add(criteriaBuilder.greaterThanOrEqualTo(criteriaBuilder.literal(endDate.getValue()),
-                        root.get(databaseColumn)));
-            }
-            if (!occupations.isEmpty()) {
-                String databaseColumn = "occupation";
-                List<Predicate> occupationPredicates = new ArrayList<>();
-                for (String occupation : occupations.getValue()) {
-                    occupationPredicates
-                            .add(criteriaBuilder.equal(criteriaBuilder.literal(occupation), root.get(databaseColumn)));
-                }
-                predicates.add(criteriaBuilder.or(occupationPredicates.toArray(Predicate[]::new)));
-            }
-            if (!roles.isEmpty()) {
-                String databaseColumn = "role";
-                List<Predicate> rolePredicates = new ArrayList<>();
-                for (String role : roles.getValue()) {
-                    rolePredicates.add(criteriaBuilder.equal(criteriaBuilder.literal(role), root.get(databaseColumn)));
-                }
-                predicates.add(criteriaBuilder.or(rolePredicates.toArray(Predicate[]::new)));
-            }
-            return criteriaBuilder.and(predicates.toArray(Predicate[]::new));
-        }
-
-        private String ignoreCharacters(String characters, String in) {
-            String result = in;
-            for (int i = 0; i < characters.length(); i++) {
-                result = result.replace("" + characters.charAt(i), "");
-            }
-            return result;
-        }
-
-        private Expression<String> ignoreCharacters(String characters, CriteriaBuilder criteriaBuilder,
-                Expression<String> inExpression) {
-            Expression<String> expression = inExpression;
-            for (int i = 0; i < characters.length(); i++) {
-                expression = criteriaBuilder.function("replace", String.class, expression,
-                        criteriaBuilder.literal(characters.charAt(i)), criteriaBuilder.literal(""));
-            }
-            return expression;
+        /**
+         * The criteria as currently entered.
+         */
+        public PersonFilter snapshot() {
+            return new PersonFilter(name.getValue(), phone.getValue(), startDate.getValue(), endDate.getValue(),
+                    occupations.getValue(), roles.getValue());
         }
 
     }
 
     private Component createGrid() {
-        grid = new Grid<>(SamplePerson.class, false);
+        grid = new Grid<>(SamplePersonRow.class, false);
         grid.addColumn("firstName").setAutoWidth(true);
         grid.addColumn("lastName").setAutoWidth(true);
         grid.addColumn("email").setAutoWidth(true);
@@ -227,8 +160,11 @@ public class GridwithFiltersView extends Div {
         grid.addColumn("occupation").setAutoWidth(true);
         grid.addColumn("role").setAutoWidth(true);
 
-        grid.setItems(query -> samplePersonService.list(VaadinSpringDataHelpers.toSpringPageRequest(query), filters)
-                .stream());
+        pager = new KeysetPager<>(
+                (position, limit, sort) -> samplePersonService.find(criteria, position, limit, sort),
+                (offset, limit, sort) -> samplePersonService.find(criteria, offset, limit, sort));
+        // Sized up front from the cached or estimated count, the grid corrects it at the end of the data
+        grid.setItems(pager::fetch).setItemCountEstimate(Math.max(1, samplePersonService.sizeEstimate()));
         grid.addThemeVariants(GridVariant.LUMO_NO_BORDER);
         grid.addClassNames(LumoUtility.Border.TOP, LumoUtility.BorderColor.CONTRAST_10);
 
@@ -236,6 +172,8 @@ public class GridwithFiltersView extends Div {
     }
 
     private void refreshGrid() {
+        criteria = filters.snapshot();
+        pager.reset();
         grid.getDataProvider().refreshAll();
     }
 
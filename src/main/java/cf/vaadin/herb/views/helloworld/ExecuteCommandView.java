@@ -1,8 +1,22 @@
 package cf.vaadin.herb.views.helloworld;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+
 import org.vaadin.lineawesome.LineAwesomeIconUrl;
 
-import com.vaadin.flow.component.ComponentEffect;
+import cf.vaadin.herb.services.CommandEntry;
+import cf.vaadin.herb.services.CommandExecution;
+import cf.vaadin.herb.services.CommandExecutor;
+import cf.vaadin.herb.services.CommandHistory;
+import cf.vaadin.herb.services.CommandUsage;
+import cf.vaadin.herb.signals.ComponentSignals;
+import cf.vaadin.herb.signals.EffectBinder;
+import cf.vaadin.herb.signals.SignalInstrumentation;
+
 import com.vaadin.flow.component.Key;
 import com.vaadin.flow.component.accordion.Accordion;
 import com.vaadin.flow.component.button.Button;
@@ -13,10 +27,12 @@ import com.vaadin.flow.component.notification.Notification;
 import com.vaadin.flow.component.orderedlayout.HorizontalLayout;
 import com.vaadin.flow.component.orderedlayout.VerticalLayout;
 import com.vaadin.flow.component.textfield.TextField;
+import com.vaadin.flow.data.value.ValueChangeMode;
 import com.vaadin.flow.router.Menu;
 import com.vaadin.flow.router.PageTitle;
 import com.vaadin.flow.router.Route;
 import com.vaadin.signals.ListSignal;
+import com.vaadin.signals.Signal;
 import com.vaadin.signals.ValueSignal;
 
 @PageTitle("Execute Command")
@@ -27,15 +43,23 @@ public class ExecuteCommandView extends VerticalLayout {
     private Div lastExecutedTitle = new Div("Last Executed Command:");
     private Div lastExecutedValue = new Div();
 
-    private static final ValueSignal<String> lastExecutedCommandSignal = new ValueSignal<>("");
+    private static final int OLDER_PAGE_SIZE = 50;
+    private static final int SHOWN_EXECUTIONS = 20;
+    private static final int SEARCH_RESULTS = 20;
+    private static final int TOP_COMMANDS = 10;
+    private static final String SESSION_COMMANDS_SIGNAL = "execute-command.session-commands";
+
     private final ListSignal<String> executedInSessionSignal = new ListSignal<>(String.class);
-    private static final ListSignal<String> executedGloballySignal = new ListSignal<>(String.class);
 
     private TextField commandField;
     private Button executeButton;
+    private long oldestLoadedSequence = -1;
 
-    public ExecuteCommandView() {
+    private final UnorderedList executionsUL = new UnorderedList();
+
+    public ExecuteCommandView(CommandHistory commandHistory, CommandExecutor commandExecutor) {
         commandField = new TextField("Command");
+        commandField.setMaxLength(CommandHistory.MAX_COMMAND_LENGTH);
         executeButton = new Button("Execute");
         executeButton.addClickListener(e -> {
             var value = commandField.getValue();
@@ -43,10 +67,27 @@ public class ExecuteCommandView extends VerticalLayout {
                 Notification.show("Please enter a command to execute.");
                 return;
             }
-            Notification.show("Executed command: " + value);
-            lastExecutedCommandSignal.value(value);
-            executedInSessionSignal.insertFirst(value);
-            executedGloballySignal.insertFirst(value);
+            if (value.length() > CommandHistory.MAX_COMMAND_LENGTH) {
+                Notification.show("Commands are limited to " + CommandHistory.MAX_COMMAND_LENGTH + " characters.");
+                return;
+            }
+            CommandExecution execution;
+            try {
+                execution = commandExecutor.submit(value);
+            } catch (RejectedExecutionException ex) {
+                Notification.show("Too many commands are running, please try again later.");
+                return;
+            }
+            showExecution(execution);
+            // A command executed again moves to the top instead of being listed twice
+            Signal.runInTransaction(() -> {
+                executedInSessionSignal.peek().stream()
+                        .filter(entry -> entry.peek().equals(value))
+                        .forEach(executedInSessionSignal::remove);
+                executedInSessionSignal.insertFirst(value);
+            });
+            SignalInstrumentation.recordWrite(SESSION_COMMANDS_SIGNAL);
+            // The executor records the command in the history once it is done
         });
         executeButton.addClickShortcut(Key.ENTER);
 
@@ -55,34 +96,114 @@ public class ExecuteCommandView extends VerticalLayout {
 
 
         var lastExecuted = new HorizontalLayout(lastExecutedTitle, lastExecutedValue);
-        lastExecutedValue.bindText(lastExecutedCommandSignal);
+        lastExecutedValue.bindText(commandHistory.lastExecuted());
 
         var accordion = new Accordion();
         var inSessionUL = new UnorderedList();
         var globalUL = new UnorderedList();
-
-        ComponentEffect.effect(inSessionUL, () -> {
-            inSessionUL.removeAll();
-            executedInSessionSignal.value().forEach(listItem -> inSessionUL.add(new ListItem(listItem.value())));
+        var olderUL = new UnorderedList();
+
+        // Executed commands never change, each item only needs the value it was created with
+        ComponentSignals.bindChildren(inSessionUL, executedInSessionSignal,
+                entry -> new ListItem(entry.peek()));
+        ComponentSignals.bindChildren(globalUL, commandHistory.recent(),
+                entry -> new ListItem(entry.peek().command()));
+
+        // Older commands are paged from the command journal and not updated
+        var loadOlderButton = new Button("Load older");
+        loadOlderButton.addClickListener(e -> {
+            if (oldestLoadedSequence < 0) {
+                oldestLoadedSequence = commandHistory.journaledCount();
+            }
+            List<CommandEntry> older = loadOlder(commandHistory);
+            older.forEach(entry -> olderUL.add(new ListItem(entry.command())));
+            loadOlderButton.setEnabled(oldestLoadedSequence > 0);
         });
 
-        ComponentEffect.effect(globalUL, () -> {
-            globalUL.removeAll();
-            executedGloballySignal.value().forEach(listItem -> globalUL.add(new ListItem(listItem.value())));
+        
+        // The index answers on every keystroke, results follow the query through a computed signal
+        var searchSignal = new ValueSignal<>("");
+        var searchField = new TextField();
+        searchField.setPlaceholder("Search all commands");
+        searchField.setValueChangeMode(ValueChangeMode.EAGER);
+        searchField.addValueChangeListener(e -> searchSignal.value(e.getValue()));
+        var searchResults = commandHistory.search(searchSignal, SEARCH_RESULTS);
+        var searchUL = new UnorderedList();
+        var searchHint = new Div("Only the newest " + CommandHistory.SHORT_QUERY_SCAN_LIMIT
+                + " commands were searched, enter at least three characters to search all of them.");
+        EffectBinder.IMMEDIATE.effect(searchUL, () -> {
+            var result = searchResults.value();
+            searchUL.removeAll();
+            result.matches().forEach(entry -> searchUL.add(new ListItem(entry.command())));
+            searchHint.setVisible(!result.complete());
         });
 
-        
+        var mostRecentUL = new UnorderedList();
+        var mostFrequentUL = new UnorderedList();
+        bindUsages(mostRecentUL, commandHistory.mostRecent(TOP_COMMANDS));
+        bindUsages(mostFrequentUL, commandHistory.mostFrequent(TOP_COMMANDS));
+
         accordion.add("Executed in this session", inSessionUL);
-        accordion.add("Executed globally", globalUL);
+        accordion.add("Executed globally", new VerticalLayout(globalUL, olderUL, loadOlderButton));
+        accordion.add("Search history", new VerticalLayout(searchField, searchHint, searchUL));
+        accordion.add("Most recent and most frequent",
+                new HorizontalLayout(new VerticalLayout(new Div("Most recent"), mostRecentUL),
+                        new VerticalLayout(new Div("Most frequent"), mostFrequentUL)));
 
         setMargin(true);
 
         var commandLayout = new HorizontalLayout(commandField, executeButton);
         commandLayout.setAlignItems(Alignment.BASELINE);
-        add(commandLayout, lastExecuted, accordion);
+        add(commandLayout, executionsUL, lastExecuted, accordion);
     }
 
+    /*
+     * The recent commands are ordered by execution time and replicated ones are
+     * journaled when they arrive, so the journal is paged from its end by
+     * sequence number, skipping the commands that are listed as recent.
+     */
+    private List<CommandEntry> loadOlder(CommandHistory commandHistory) {
+        Set<Long> shown = commandHistory.recent().peek().stream()
+                .map(entry -> entry.peek().sequence())
+                .collect(Collectors.toSet());
+        List<CommandEntry> page = new ArrayList<>(OLDER_PAGE_SIZE);
+        while (page.size() < OLDER_PAGE_SIZE && oldestLoadedSequence > 0) {
+            List<CommandEntry> older = commandHistory.loadOlder(oldestLoadedSequence, OLDER_PAGE_SIZE);
+            if (older.isEmpty()) {
+                oldestLoadedSequence = 0;
+            }
+            for (CommandEntry entry : older) {
+                oldestLoadedSequence = entry.sequence();
+                if (!shown.contains(entry.sequence())) {
+                    page.add(entry);
+                    if (page.size() == OLDER_PAGE_SIZE) {
+                        break;
+                    }
+                }
+            }
+        }
+        return page;
+    }
 
-    // Notes: 
-    // Would be nice if Unordered List had a bindlist method
+    private static void bindUsages(UnorderedList list, Signal<List<CommandUsage>> usages) {
+        EffectBinder.IMMEDIATE.effect(list, () -> {
+            list.removeAll();
+            usages.value().forEach(usage -> list.add(new ListItem(usage.command() + " (" + usage.hits() + "x)")));
+        });
+    }
+
+    // The execution runs on its own thread, its status and result are pushed when they change
+    private void showExecution(CommandExecution execution) {
+        var item = new ListItem();
+        EffectBinder.IMMEDIATE.effect(item, () -> {
+            var text = execution.command() + ": " + execution.status().value();
+            var result = execution.result().value();
+            if (!result.isEmpty()) {
+                text += " in " + execution.durationMillis().value() + " ms, " + result;
+            }
+            item.setText(text);
+        });
+        executionsUL.addComponentAsFirst(item);
+        executionsUL.getChildren().skip(SHOWN_EXECUTIONS).toList().forEach(executionsUL::remove);
+    }
 }
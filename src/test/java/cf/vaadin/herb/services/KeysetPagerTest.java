@@ -0,0 +1,106 @@
+package cf.vaadin.herb.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import cf.vaadin.herb.data.SamplePerson;
+import cf.vaadin.herb.data.SamplePersonRepository;
+import cf.vaadin.herb.data.SamplePersonRow;
+
+import com.vaadin.flow.data.provider.Query;
+import com.vaadin.flow.data.provider.QuerySortOrder;
+import com.vaadin.flow.data.provider.SortDirection;
+
+/**
+ * Pages the person table by keyset the way the grids do and compares every
+ * row with a read of the whole table by offset in the same order, which the
+ * database sorts on its own.
+ */
+@SpringBootTest
+@Transactional
+class KeysetPagerTest {
+
+    private static final int PAGE_SIZE = 7;
+
+    @Autowired
+    private SamplePersonRepository repository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void addPersonsWithDuplicateAndNullSortKeys() {
+        for (int i = 0; i < 20; i++) {
+            SamplePerson person = new SamplePerson();
+            person.setFirstName("Same");
+            person.setLastName("Doe");
+            person.setEmail("doe" + i + "@example.com");
+            person.setPhone("(555) 000-00" + i);
+            person.setDateOfBirth(i % 2 == 0 ? null : LocalDate.of(1990, 1, 1));
+            person.setOccupation(i % 3 == 0 ? null : "Tester");
+            person.setRole("Worker");
+            repository.save(person);
+        }
+        repository.flush();
+    }
+
+    @Test
+    void duplicateSortKeys() {
+        assertPagedInOrder("lastName", SortDirection.ASCENDING);
+        assertPagedInOrder("firstName", SortDirection.DESCENDING);
+    }
+
+    @Test
+    void nullSortKeysAscending() {
+        assertPagedInOrder("dateOfBirth", SortDirection.ASCENDING);
+        assertPagedInOrder("occupation", SortDirection.ASCENDING);
+    }
+
+    @Test
+    void nullSortKeysDescending() {
+        assertPagedInOrder("dateOfBirth", SortDirection.DESCENDING);
+        assertPagedInOrder("occupation", SortDirection.DESCENDING);
+    }
+
+    @Test
+    void pageStartsInTheIndexOfTheSortColumn() {
+        // The shape of the keyset predicate for lastName, id after the row Lane, 1
+        String plan = jdbcTemplate.queryForObject("EXPLAIN SELECT id FROM sample_person"
+                + " WHERE last_name >= 'Lane' AND (last_name > 'Lane' OR (last_name = 'Lane' AND id > 1))"
+                + " ORDER BY last_name, id FETCH FIRST 7 ROWS ONLY", String.class);
+
+        assertThat(plan).containsIgnoringCase("sample_person_last_name");
+    }
+
+    private void assertPagedInOrder(String property, SortDirection direction) {
+        Sort sort = Sort.by(direction == SortDirection.ASCENDING ? Sort.Direction.ASC : Sort.Direction.DESC,
+                property).and(Sort.by("id"));
+        List<SamplePersonRow> expected = repository.findRows(PersonFilter.NONE, 0, Integer.MAX_VALUE, sort);
+
+        KeysetPager<SamplePersonRow> pager = new KeysetPager<>(
+                (position, limit, keysetSort) -> repository.findRows(PersonFilter.NONE, position, limit,
+                        keysetSort),
+                (offset, limit, keysetSort) -> repository.findRows(PersonFilter.NONE, offset, limit, keysetSort));
+        List<QuerySortOrder> sortOrders = List.of(new QuerySortOrder(property, direction));
+        List<SamplePersonRow> paged = new ArrayList<>();
+        List<SamplePersonRow> page;
+        do {
+            page = pager.fetch(new Query<>(paged.size(), PAGE_SIZE, sortOrders, null, null)).toList();
+            paged.addAll(page);
+        } while (!page.isEmpty());
+
+        assertThat(paged).containsExactlyElementsOf(expected);
+        assertThat(paged).hasSize((int) repository.count());
+    }
+}
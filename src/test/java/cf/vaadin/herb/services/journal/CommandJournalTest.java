@@ -0,0 +1,159 @@
+package cf.vaadin.herb.services.journal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import cf.vaadin.herb.services.CommandEntry;
+
+class CommandJournalTest {
+
+    private static final String FIRST_DATA_FILE = String.format("%020d.log", 0);
+    private static final String FIRST_INDEX_FILE = String.format("%020d.idx", 0);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void reopenedJournalKeepsItsCommands() throws IOException {
+        CommandJournal journal = open(DataSize.ofKilobytes(64));
+        append(journal, 3);
+        journal.close();
+
+        CommandJournal reopened = open(DataSize.ofKilobytes(64));
+        assertThat(reopened.size()).isEqualTo(3);
+        assertThat(reopened.read(1)).isEqualTo(new CommandEntry(1, "command 1", 1001));
+        assertThat(reopened.append("command 3", 1003).sequence()).isEqualTo(3);
+        reopened.close();
+    }
+
+    @Test
+    void uncommittedRecordIsOverwrittenAfterReopen() throws IOException {
+        CommandJournal journal = open(DataSize.ofKilobytes(64));
+        append(journal, 2);
+        journal.close();
+        // A record written to the data file whose index entry was never committed
+        writeRecord(recordsEnd(2), "torn", 9999);
+
+        CommandJournal reopened = open(DataSize.ofKilobytes(64));
+        assertThat(reopened.size()).isEqualTo(2);
+        reopened.append("command 2", 1002);
+        assertThat(reopened.read(2)).isEqualTo(new CommandEntry(2, "command 2", 1002));
+        reopened.close();
+    }
+
+    @Test
+    void lostIndexIsRebuiltUpToTheTornRecord() throws IOException {
+        CommandJournal journal = open(DataSize.ofKilobytes(64));
+        append(journal, 3);
+        journal.close();
+        Files.delete(directory.resolve(FIRST_INDEX_FILE));
+        // Only the length of the next record made it to the file, not its execution time
+        try (FileChannel data = FileChannel.open(directory.resolve(FIRST_DATA_FILE), StandardOpenOption.WRITE)) {
+            data.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, 42), recordsEnd(3));
+        }
+
+        CommandJournal reopened = open(DataSize.ofKilobytes(64));
+        assertThat(reopened.size()).isEqualTo(3);
+        assertThat(reopened.readBefore(3, 3)).extracting(CommandEntry::command)
+                .containsExactly("command 2", "command 1", "command 0");
+        reopened.close();
+    }
+
+    @Test
+    void lostIndexIsRebuiltUpToTheRecordWithATornCommand() throws IOException {
+        CommandJournal journal = open(DataSize.ofKilobytes(64));
+        append(journal, 4);
+        journal.close();
+        Files.delete(directory.resolve(FIRST_INDEX_FILE));
+        // The header of the last record made it to the file, the end of its command did not
+        try (FileChannel data = FileChannel.open(directory.resolve(FIRST_DATA_FILE), StandardOpenOption.WRITE)) {
+            data.write(ByteBuffer.allocate(2), recordsEnd(4) - 2);
+        }
+
+        CommandJournal reopened = open(DataSize.ofKilobytes(64));
+        assertThat(reopened.size()).isEqualTo(3);
+        assertThat(reopened.append("command 3", 1003).sequence()).isEqualTo(3);
+        assertThat(reopened.read(3)).isEqualTo(new CommandEntry(3, "command 3", 1003));
+        reopened.close();
+    }
+
+    @Test
+    void fullSegmentRollsOverToOneNamedAfterItsFirstCommand() throws IOException {
+        // Room for three records of "command n"
+        DataSize segmentSize = DataSize.ofBytes(3 * (JournalSegment.RECORD_HEADER_BYTES + "command 0".length()));
+        CommandJournal journal = open(segmentSize);
+        append(journal, 10);
+        assertThat(journal.readBefore(10, 10)).extracting(CommandEntry::sequence)
+                .containsExactlyElementsOf(LongStream.range(0, 10).map(sequence -> 9 - sequence).boxed().toList());
+        journal.close();
+
+        assertThat(dataFiles()).containsExactly(String.format("%020d.log", 0), String.format("%020d.log", 3),
+                String.format("%020d.log", 6), String.format("%020d.log", 9));
+        CommandJournal reopened = open(segmentSize);
+        assertThat(reopened.size()).isEqualTo(10);
+        assertThat(reopened.read(7)).isEqualTo(new CommandEntry(7, "command 7", 1007));
+        reopened.close();
+    }
+
+    @Test
+    void commandLargerThanASegmentIsRejected() throws IOException {
+        CommandJournal journal = open(DataSize.ofBytes(64));
+        append(journal, 1);
+
+        assertThatIllegalArgumentException().isThrownBy(() -> journal.append("x".repeat(64), 2000));
+        assertThat(journal.size()).isEqualTo(1);
+        assertThat(journal.append("command 1", 1001).sequence()).isEqualTo(1);
+        journal.close();
+        assertThat(dataFiles()).hasSize(1);
+    }
+
+    private CommandJournal open(DataSize segmentSize) {
+        return new CommandJournal(directory.toString(), segmentSize);
+    }
+
+    private static void append(CommandJournal journal, int count) {
+        for (int i = 0; i < count; i++) {
+            journal.append("command " + i, 1000 + i);
+        }
+    }
+
+    // The offset after the given number of "command n" records
+    private static int recordsEnd(int records) {
+        return records * (JournalSegment.RECORD_HEADER_BYTES + "command 0".length());
+    }
+
+    private void writeRecord(int position, String command, long executedAt) throws IOException {
+        byte[] bytes = command.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(JournalSegment.RECORD_HEADER_BYTES + bytes.length)
+                .putInt(bytes.length)
+                .putLong(executedAt)
+                .putInt(0)
+                .put(bytes)
+                .flip();
+        try (FileChannel data = FileChannel.open(directory.resolve(FIRST_DATA_FILE), StandardOpenOption.WRITE)) {
+            data.write(record, position);
+        }
+    }
+
+    private List<String> dataFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString()).filter(name -> name.endsWith(".log")).sorted()
+                    .toList();
+        }
+    }
+}
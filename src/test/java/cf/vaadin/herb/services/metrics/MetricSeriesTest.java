@@ -0,0 +1,133 @@
+package cf.vaadin.herb.services.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MetricSeriesTest {
+
+    private static final long SECOND = Duration.ofSeconds(1).toMillis();
+    private static final long HOUR = Duration.ofHours(1).toMillis();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void tenSecondBucketsIncludeTheOpenOne() throws IOException {
+        // One point per second for two minutes, the value is the second
+        MetricSeries series = new MetricSeries(directory, "series");
+        appendEvery(series, 0, 120 * SECOND, SECOND);
+
+        Downsampled result = series.query(0, 120 * SECOND, 12);
+        assertThat(result.timestamps()).containsExactly(0, 10_000, 20_000, 30_000, 40_000, 50_000, 60_000, 70_000,
+                80_000, 90_000, 100_000, 110_000);
+        assertThat(result.min()).containsExactly(0, 10, 20, 30, 40, 50, 60, 70, 80, 90, 100, 110);
+        assertThat(result.max()).containsExactly(9, 19, 29, 39, 49, 59, 69, 79, 89, 99, 109, 119);
+        assertThat(result.avg()).containsExactly(4.5, 14.5, 24.5, 34.5, 44.5, 54.5, 64.5, 74.5, 84.5, 94.5, 104.5,
+                114.5);
+        series.close();
+    }
+
+    @Test
+    void minuteBucketsIncludeTheOpenBucketsBelow() throws IOException {
+        MetricSeries series = new MetricSeries(directory, "series");
+        appendEvery(series, 0, 120 * SECOND, SECOND);
+
+        // The second minute is an open minute bucket plus the open ten second bucket of its last points
+        Downsampled result = series.query(0, 120 * SECOND, 2);
+        assertThat(result.timestamps()).containsExactly(0, 60_000);
+        assertThat(result.min()).containsExactly(0, 60);
+        assertThat(result.max()).containsExactly(59, 119);
+        assertThat(result.avg()).containsExactly(29.5, 89.5);
+        series.close();
+    }
+
+    @Test
+    void hourBuckets() throws IOException {
+        // One point per ten seconds for three hours, the value is the number of the point
+        MetricSeries series = new MetricSeries(directory, "series");
+        appendEvery(series, 0, 3 * HOUR, 10 * SECOND);
+
+        assertHours(series.query(0, 3 * HOUR, 3));
+        series.close();
+    }
+
+    @Test
+    void reopenedSeriesRebuildsItsOpenBuckets() throws IOException {
+        // Stops in the middle of an open bucket on every level
+        long restartAt = HOUR + 35 * 60 * SECOND + 35 * SECOND;
+        MetricSeries series = new MetricSeries(directory, "series");
+        appendEvery(series, 0, restartAt, 5 * SECOND);
+        series.close();
+
+        MetricSeries reopened = new MetricSeries(directory, "series");
+        appendEvery(reopened, restartAt, 3 * HOUR, 5 * SECOND);
+        Downsampled result = reopened.query(0, 3 * HOUR, 3);
+        assertThat(result.min()).containsExactly(0, 720, 1440);
+        assertThat(result.max()).containsExactly(719, 1439, 2159);
+        assertThat(result.avg()).containsExactly(359.5, 1079.5, 1799.5);
+        reopened.close();
+    }
+
+    @Test
+    void storeKeepsItsSeriesAcrossRestarts() throws IOException {
+        MetricsStore store = new MetricsStore(directory.toString());
+        appendEvery(store, 0, 90 * 60 * SECOND);
+        store.close();
+
+        MetricsStore restarted = new MetricsStore(directory.toString());
+        appendEvery(restarted, 90 * 60 * SECOND, 3 * HOUR);
+        assertHours(restarted.query("series", 0, 3 * HOUR, 3));
+        restarted.close();
+    }
+
+    @Test
+    void shortRangeReadsTheRawPoints() throws IOException {
+        MetricSeries series = new MetricSeries(directory, "series");
+        appendEvery(series, 0, 120 * SECOND, SECOND);
+
+        Downsampled result = series.query(30 * SECOND, 50 * SECOND, 20);
+        assertThat(result.size()).isEqualTo(20);
+        assertThat(result.timestamps()[0]).isEqualTo(30 * SECOND);
+        assertThat(result.timestamps()[19]).isEqualTo(49 * SECOND);
+        assertThat(result.min()).containsExactly(30, 31, 32, 33, 34, 35, 36, 37, 38, 39, 40, 41, 42, 43, 44, 45, 46,
+                47, 48, 49);
+        series.close();
+    }
+
+    @Test
+    void rangeWithoutPointsIsEmpty() throws IOException {
+        MetricSeries series = new MetricSeries(directory, "series");
+        appendEvery(series, 0, 120 * SECOND, SECOND);
+
+        assertThat(series.query(HOUR, 2 * HOUR, 10).size()).isZero();
+        assertThat(series.query(120 * SECOND, 3 * HOUR, 10).size()).isZero();
+        series.close();
+    }
+
+    // Values of one point per ten seconds for three hours, queried in hour buckets
+    private static void assertHours(Downsampled result) {
+        assertThat(result.timestamps()).containsExactly(0, HOUR, 2 * HOUR);
+        assertThat(result.min()).containsExactly(0, 360, 720);
+        assertThat(result.max()).containsExactly(359, 719, 1079);
+        assertThat(result.avg()).containsExactly(179.5, 539.5, 899.5);
+    }
+
+    // The value of every point is its number counted from 0, one point per step
+    private static void appendEvery(MetricSeries series, long from, long to, long step) throws IOException {
+        for (long timestamp = from; timestamp < to; timestamp += step) {
+            series.append(timestamp, timestamp / step);
+        }
+    }
+
+    private static void appendEvery(MetricsStore store, long from, long to) {
+        for (long timestamp = from; timestamp < to; timestamp += 10 * SECOND) {
+            store.append("series", timestamp, timestamp / (10 * SECOND));
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package cf.vaadin.herb.services.replication;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SignalReplicatorTest {
+
+    private static final String SIGNAL = "test";
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    @TempDir
+    Path directory;
+
+    private final LoopbackTransport group = new LoopbackTransport();
+    private final List<SignalReplicator> replicators = new ArrayList<>();
+
+    @AfterEach
+    void close() throws InterruptedException {
+        for (SignalReplicator replicator : replicators) {
+            replicator.close();
+        }
+    }
+
+    @Test
+    void operationsReachTheOtherNode() throws InterruptedException {
+        List<String> receivedByA = new CopyOnWriteArrayList<>();
+        List<String> receivedByB = new CopyOnWriteArrayList<>();
+        SignalReplicator a = start("a", group, receivedByA);
+        SignalReplicator b = start("b", group.join(), receivedByB);
+
+        publish(a, "a1");
+        publish(b, "b1");
+        publish(a, "a2");
+
+        await(() -> receivedByB.size() == 2 && receivedByA.size() == 1);
+        assertThat(receivedByB).containsExactly("a1", "a2");
+        assertThat(receivedByA).containsExactly("b1");
+    }
+
+    @Test
+    void restartedNodeOnlyReceivesWhatItMissed() throws InterruptedException {
+        List<String> receivedByA = new CopyOnWriteArrayList<>();
+        List<String> receivedByB = new CopyOnWriteArrayList<>();
+        SignalReplicator a = start("a", group, receivedByA);
+        SignalReplicator b = start("b", group.join(), receivedByB);
+        publish(a, "a1");
+        publish(a, "a2");
+        publish(b, "b1");
+        await(() -> receivedByB.size() == 2 && receivedByA.size() == 1);
+
+        replicators.remove(b);
+        b.close();
+        publish(a, "a3");
+
+        List<String> receivedAfterRestart = new CopyOnWriteArrayList<>();
+        SignalReplicator restarted = start("b", group.join(), receivedAfterRestart);
+        // Only the sync after the restart delivers a3
+        await(() -> receivedAfterRestart.contains("a3"));
+        publish(a, "a4");
+        publish(restarted, "b2");
+
+        await(() -> receivedAfterRestart.contains("a4") && receivedByA.contains("b2"));
+        assertThat(receivedAfterRestart).containsExactly("a3", "a4");
+        // The restarted node continued its numbering, so b2 was not taken for a duplicate of b1
+        assertThat(receivedByA).containsExactly("b1", "b2");
+    }
+
+    @Test
+    void failedOperationIsAppliedWithTheNextSync() throws InterruptedException {
+        List<String> receivedByB = new CopyOnWriteArrayList<>();
+        AtomicBoolean failed = new AtomicBoolean();
+        SignalReplicator a = start("a", group, new CopyOnWriteArrayList<>());
+        start("b", group.join(), payload -> {
+            if (failed.compareAndSet(false, true)) {
+                throw new IllegalStateException("Failing once");
+            }
+            receivedByB.add(new String(payload, StandardCharsets.UTF_8));
+        });
+
+        publish(a, "a1");
+        await(failed::get);
+        // Waits for a1, which the sync it triggers delivers again
+        publish(a, "a2");
+
+        await(() -> receivedByB.size() == 2);
+        assertThat(receivedByB).containsExactly("a1", "a2");
+    }
+
+    private SignalReplicator start(String node, LoopbackTransport transport, List<String> received) {
+        return start(node, transport, payload -> received.add(new String(payload, StandardCharsets.UTF_8)));
+    }
+
+    private SignalReplicator start(String node, LoopbackTransport transport, Consumer<byte[]> handler) {
+        SignalReplicator replicator = new SignalReplicator(transport, 100, directory.resolve(node).toString(),
+                Duration.ofSeconds(1));
+        replicator.register(SIGNAL, handler);
+        replicator.start();
+        replicators.add(replicator);
+        return replicator;
+    }
+
+    private static void publish(SignalReplicator replicator, String value) {
+        replicator.publish(SIGNAL, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Not replicated within " + TIMEOUT);
+            }
+            Thread.sleep(10);
+        }
+    }
+}